@@ -0,0 +1,563 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Term statistics for one document, used to pick MCQ key terms and distractors.
+ *
+ * add() is called once per sentence in a single linear pass; each candidate
+ * term (more than 5 letters/digits, not a stopword) is hashed to 64 bits and
+ * mapped to a dense int id, and per-id counters live in plain int arrays:
+ * total occurrences (tf) and number of sentences containing the term (df).
+ * After finish() the stats are read-only and can be shared by generation
+ * threads.
+ *
+ * The same pass mines multi-word key phrases ("garbage collection", "Java
+ * Virtual Machine"): every run of two or three adjacent non-stopwords that
+ * includes a candidate term is hashed from its words' keys and counted in a
+ * second LongIntHashMap. A phrase seen MIN_PHRASE_COUNT times is promoted to
+ * a term of its own - id, counters and surface text like any single word.
+ * Phrases still below that count are pruned (singletons first) whenever
+ * MAX_PENDING_PHRASES are waiting, so memory stays bounded however long the
+ * upload; the price is that a phrase spread very thinly over a huge
+ * document can be missed.
+ *
+ * Scoring treats each sentence as a "document": a term's weight is
+ * log(1 + tf) * log(N / df), times its word count so a recurring phrase
+ * beats the single words inside it. Distractors come from the terms of the
+ * same kind (word or phrase) whose total frequency is closest to the
+ * answer's.
+ *
+ * Large documents are counted in parallel by a Builder: fixed-size chunks of
+ * sentences are counted separately and merged in document order (merge()).
+ */
+public class CorpusStats {
+
+    static final int MIN_TERM_LENGTH = 6;
+    // Hard cap on distinct terms so huge uploads keep a bounded index
+    static final int MAX_TERMS = 1 << 20;
+    private static final int DISTRACTOR_WINDOW = 12;
+
+    static final int MAX_PHRASE_WORDS = 3;
+    static final int MIN_PHRASE_COUNT = 3;
+    private static final int MIN_PHRASE_WORD_LENGTH = 3;
+    static final int MAX_PENDING_PHRASES = 1 << 18;
+
+    // Sentences per Builder chunk; fixed so the merged counts never depend on the thread count
+    static final int CHUNK_SENTENCES = 4096;
+
+    private final StopwordSet stopwords;
+    private final Tokenizer tokens = new Tokenizer();
+    private final LongIntHashMap ids = new LongIntHashMap(1024);
+    // Phrase key -> occurrences so far, for phrases not promoted yet
+    private final LongIntHashMap pendingPhrases = new LongIntHashMap(1024);
+    private final long[] runKeys = new long[MAX_PHRASE_WORDS];
+    // Chunk stats only: surface text of pending phrases, so merge() can promote them
+    private LongIntHashMap pendingTextIndex;
+    private List<String> pendingTexts;
+
+    private long[] termKeys = new long[1024];
+    private int[] termFreq = new int[1024];
+    private int[] docFreq = new int[1024];
+    private int[] lastSentence = new int[1024];
+    private String[] surface = new String[1024];
+    private byte[] wordCount = new byte[1024];
+    private int termCount = 0;
+    private int phraseCount = 0;
+    private int sentenceCount = 0;
+
+    // Filled by finish(): word and phrase ids ordered by tf, and each id's position in its ranking
+    private int[] wordsByFrequency;
+    private int[] phrasesByFrequency;
+    private int[] rank;
+
+    public CorpusStats(StopwordSet stopwords) {
+        this.stopwords = stopwords;
+    }
+
+    // Stats of one Builder chunk, which remember pending phrase texts for merge()
+    private static CorpusStats countChunk(StopwordSet stopwords, List<String> sentences) {
+        CorpusStats chunk = new CorpusStats(stopwords);
+        chunk.pendingTextIndex = new LongIntHashMap(1024);
+        chunk.pendingTexts = new ArrayList<>();
+        for (String sentence : sentences) {
+            chunk.add(sentence);
+        }
+        return chunk;
+    }
+
+    /** Counts the candidate terms and phrases of one sentence. */
+    public void add(CharSequence sentence) {
+        int sentenceId = sentenceCount++;
+        int n = tokens.tokenize(sentence);
+        int run = 0;
+        for (int t = 0; t < n; t++) {
+            if (isCandidate(tokens, sentence, t)) {
+                long key = termKey(sentence, tokens.start(t), tokens.end(t));
+                int id = ids.get(key, -1);
+                if (id < 0 && termCount < MAX_TERMS) {
+                    id = newTerm(key, tokens.cleaned(t), 1);
+                }
+                if (id >= 0) {
+                    count(id, sentenceId);
+                }
+            }
+
+            run = extendRun(runKeys, run, tokens, sentence, t);
+            for (int len = 2; len <= run; len++) {
+                countPhrase(t - len + 1, len, phraseKey(runKeys, run - len, len), sentenceId);
+            }
+        }
+    }
+
+    private void countPhrase(int first, int len, long key, int sentenceId) {
+        int id = ids.get(key, -1);
+        if (id >= 0) {
+            count(id, sentenceId);
+            return;
+        }
+        if (!hasCandidate(tokens, first, len)) {
+            return;
+        }
+        int seen = pendingPhrases.addTo(key, 1);
+        if (seen == 1 && pendingTexts != null && pendingTextIndex.get(key, -1) < 0) {
+            pendingTextIndex.put(key, pendingTexts.size());
+            pendingTexts.add(tokens.cleaned(first, len));
+        }
+        if (seen >= MIN_PHRASE_COUNT && termCount < MAX_TERMS) {
+            pendingPhrases.put(key, 0); // goes at the next prune
+            id = newTerm(key, tokens.cleaned(first, len), len);
+            phraseCount++;
+            // The earlier sightings are assumed to have been in different sentences
+            termFreq[id] = MIN_PHRASE_COUNT - 1;
+            docFreq[id] = MIN_PHRASE_COUNT - 1;
+            count(id, sentenceId);
+        } else if (pendingPhrases.size() >= MAX_PENDING_PHRASES) {
+            prunePendingPhrases();
+        }
+    }
+
+    private void prunePendingPhrases() {
+        pendingPhrases.removeValuesBelow(2);
+        if (pendingPhrases.size() > MAX_PENDING_PHRASES / 2) {
+            pendingPhrases.clear();
+        }
+    }
+
+    private void count(int id, int sentenceId) {
+        termFreq[id]++;
+        if (lastSentence[id] != sentenceId) {
+            lastSentence[id] = sentenceId;
+            docFreq[id]++;
+        }
+    }
+
+    /**
+     * Adds the counts of chunk, whose sentences come right after this one's,
+     * as if they had been added here. Terms keep first-sighting order, so a
+     * chunk's new words get the ids a single pass would have given them.
+     * Phrases still pending in either side are summed and promoted once they
+     * reach MIN_PHRASE_COUNT together; like the promotion in add(), their
+     * sightings are assumed to be in different sentences.
+     */
+    void merge(CorpusStats chunk) {
+        for (int other = 0; other < chunk.termCount; other++) {
+            long key = chunk.termKeys[other];
+            int id = ids.get(key, -1);
+            if (id < 0) {
+                if (termCount >= MAX_TERMS) {
+                    continue;
+                }
+                int words = chunk.wordCount[other];
+                id = newTerm(key, chunk.surface[other], words);
+                if (words > 1) {
+                    phraseCount++;
+                    int pending = pendingPhrases.get(key, 0);
+                    if (pending > 0) {
+                        termFreq[id] = pending;
+                        docFreq[id] = pending;
+                        pendingPhrases.put(key, 0); // goes at the next prune
+                    }
+                }
+            }
+            termFreq[id] += chunk.termFreq[other];
+            docFreq[id] += chunk.docFreq[other];
+        }
+        chunk.pendingPhrases.forEach((key, count) -> {
+            if (count > 0) {
+                mergePendingPhrase(chunk, key, count);
+            }
+        });
+        sentenceCount += chunk.sentenceCount;
+        pendingTextIndex = null; // only a chunk's own texts are ever needed
+        pendingTexts = null;
+    }
+
+    private void mergePendingPhrase(CorpusStats chunk, long key, int count) {
+        int id = ids.get(key, -1);
+        if (id >= 0) {
+            termFreq[id] += count;
+            docFreq[id] += count;
+            return;
+        }
+        int seen = pendingPhrases.addTo(key, count);
+        int text = chunk.pendingTextIndex.get(key, -1);
+        if (seen >= MIN_PHRASE_COUNT && termCount < MAX_TERMS && text >= 0) {
+            pendingPhrases.put(key, 0);
+            String surfaceText = chunk.pendingTexts.get(text);
+            id = newTerm(key, surfaceText, surfaceText.split(" ").length);
+            phraseCount++;
+            termFreq[id] = seen;
+            docFreq[id] = seen;
+        } else if (pendingPhrases.size() >= MAX_PENDING_PHRASES) {
+            prunePendingPhrases();
+        }
+    }
+
+    /** Freezes the counts and builds the frequency rankings used for distractors. */
+    public void finish() {
+        wordsByFrequency = rankByFrequency(false);
+        phrasesByFrequency = rankByFrequency(true);
+        rank = new int[termCount];
+        for (int r = 0; r < wordsByFrequency.length; r++) {
+            rank[wordsByFrequency[r]] = r;
+        }
+        for (int r = 0; r < phrasesByFrequency.length; r++) {
+            rank[phrasesByFrequency[r]] = r;
+        }
+    }
+
+    private int[] rankByFrequency(boolean phrases) {
+        long[] packed = new long[phrases ? phraseCount : termCount - phraseCount];
+        int k = 0;
+        for (int id = 0; id < termCount; id++) {
+            if ((wordCount[id] > 1) == phrases) {
+                packed[k++] = ((long) termFreq[id] << 32) | id;
+            }
+        }
+        Arrays.sort(packed);
+        int[] ranking = new int[packed.length];
+        for (int r = 0; r < packed.length; r++) {
+            ranking[r] = (int) packed[r];
+        }
+        return ranking;
+    }
+
+    // ====== Key terms ======
+
+    /**
+     * Returns the highest-scoring key term of an already tokenized sentence
+     * as a span (see spanStart/spanWords), or -1 when the sentence has no
+     * candidate. A counted phrase of the sentence competes with its single
+     * words; ties go to the earliest term.
+     */
+    public int bestTerm(CharSequence sentence, Tokenizer sentenceTokens) {
+        int best = -1;
+        double bestScore = -1;
+        long[] keys = new long[MAX_PHRASE_WORDS]; // local: finished stats are shared between threads
+        int run = 0;
+        for (int t = 0; t < sentenceTokens.count(); t++) {
+            if (isCandidate(sentenceTokens, sentence, t)) {
+                int id = termId(sentence, sentenceTokens.start(t), sentenceTokens.end(t));
+                double score = id < 0 ? 0 : score(id);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = span(t, 1);
+                }
+            }
+            run = extendRun(keys, run, sentenceTokens, sentence, t);
+            for (int len = 2; len <= run; len++) {
+                int id = ids.get(phraseKey(keys, run - len, len), -1);
+                if (id >= 0 && score(id) > bestScore) {
+                    bestScore = score(id);
+                    best = span(t - len + 1, len);
+                }
+            }
+        }
+        return best;
+    }
+
+    static int span(int firstToken, int words) {
+        return firstToken << 2 | (words - 1);
+    }
+
+    static int spanStart(int span) {
+        return span >>> 2;
+    }
+
+    static int spanWords(int span) {
+        return (span & 3) + 1;
+    }
+
+    /** The id of text[start, end), or -1 when the term was never counted. */
+    public int termId(CharSequence text, int start, int end) {
+        return ids.get(termKey(text, start, end), -1);
+    }
+
+    /** The id of the word or phrase at span of a tokenized sentence, or -1. */
+    public int termId(CharSequence sentence, Tokenizer sentenceTokens, int span) {
+        int first = spanStart(span);
+        int words = spanWords(span);
+        if (words == 1) {
+            return termId(sentence, sentenceTokens.start(first), sentenceTokens.end(first));
+        }
+        long key = PHRASE_SEED;
+        for (int t = first; t < first + words; t++) {
+            key = mixPhrase(key, termKey(sentence, sentenceTokens.start(t), sentenceTokens.end(t)));
+        }
+        return ids.get(key, -1);
+    }
+
+    public double score(int id) {
+        // A promoted phrase's docFreq counts occurrences (and merged chunks), so it
+        // can exceed sentenceCount; clamped, the IDF stays finite and never negative
+        int sentences = Math.max(1, sentenceCount);
+        int df = Math.max(1, Math.min(docFreq[id], sentences));
+        return Math.log(1 + termFreq[id]) * Math.log((double) sentences / df) * wordCount[id];
+    }
+
+    /**
+     * Picks up to count terms whose frequency is closest to the given term's,
+     * skipping near-variants of the answer and anything already present in
+     * the sentence. Phrases get phrases and words get words, topped up from
+     * the other kind when there are too few.
+     */
+    public List<String> similarTerms(int id, int count, SplittableRandom rnd, String sentence) {
+        List<String> window = new ArrayList<>();
+        String answer = surface[id].toLowerCase();
+        String lowerSentence = sentence.toLowerCase();
+        boolean phrase = wordCount[id] > 1;
+        int[] same = phrase ? phrasesByFrequency : wordsByFrequency;
+        int[] other = phrase ? wordsByFrequency : phrasesByFrequency;
+        addNeighbours(window, same, rank[id], true, answer, lowerSentence);
+        if (window.size() < count) {
+            addNeighbours(window, other, nearestRank(other, termFreq[id]), false, answer, lowerSentence);
+        }
+
+        // Partial Fisher-Yates: choose count of the window at random
+        List<String> picked = new ArrayList<>();
+        for (int i = 0; i < window.size() && picked.size() < count; i++) {
+            int j = i + rnd.nextInt(window.size() - i);
+            String tmp = window.get(i);
+            window.set(i, window.get(j));
+            window.set(j, tmp);
+            picked.add(window.get(i));
+        }
+        return picked;
+    }
+
+    // Walks outwards from ranking[center] until the window is full
+    private void addNeighbours(List<String> window, int[] ranking, int center, boolean skipCenter,
+                               String answer, String lowerSentence) {
+        if (ranking.length == 0) {
+            return;
+        }
+        for (int step = skipCenter ? 1 : 0;
+             window.size() < DISTRACTOR_WINDOW && (center - step >= 0 || center + step < ranking.length); step++) {
+            if (center - step >= 0) addIfUsable(window, ranking[center - step], answer, lowerSentence);
+            if (step > 0 && center + step < ranking.length && window.size() < DISTRACTOR_WINDOW) {
+                addIfUsable(window, ranking[center + step], answer, lowerSentence);
+            }
+        }
+    }
+
+    // First position in ranking whose tf is at least tf (clamped to the last one)
+    private int nearestRank(int[] ranking, int tf) {
+        int lo = 0, hi = ranking.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (termFreq[ranking[mid]] < tf) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public int sentenceCount() {
+        return sentenceCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public int phraseCount() {
+        return phraseCount;
+    }
+
+    private void addIfUsable(List<String> window, int candidate, String answer, String lowerSentence) {
+        String term = surface[candidate].toLowerCase();
+        if (term.startsWith(answer) || answer.startsWith(term) || lowerSentence.contains(term)) {
+            return;
+        }
+        // "Virtual Machine" next to "Java Virtual Machine" would give the answer away
+        for (String w : window) {
+            String other = w.toLowerCase();
+            if (other.contains(term) || term.contains(other)) return;
+        }
+        window.add(surface[candidate]);
+    }
+
+    private boolean isCandidate(Tokenizer t, CharSequence sentence, int token) {
+        return t.cleanLength(token) >= MIN_TERM_LENGTH
+                && !stopwords.contains(sentence, t.start(token), t.end(token));
+    }
+
+    // ====== Phrase runs ======
+
+    /**
+     * Updates the run of adjacent phrase words that ends at token t, keeping
+     * the keys of its last MAX_PHRASE_WORDS words in keys (oldest first), and
+     * returns its new length: 0 when t is a stopword or too short, and a
+     * fresh run when punctuation separates t from the previous token.
+     */
+    private int extendRun(long[] keys, int run, Tokenizer t, CharSequence sentence, int token) {
+        int start = t.start(token), end = t.end(token);
+        if (t.cleanLength(token) < MIN_PHRASE_WORD_LENGTH || stopwords.contains(sentence, start, end)) {
+            return 0;
+        }
+        if (run > 0 && (!Tokenizer.isWordChar(sentence.charAt(t.end(token - 1) - 1))
+                || !Tokenizer.isWordChar(sentence.charAt(start)))) {
+            run = 0; // "collection, virtual" or "(Java" are not one phrase
+        }
+        if (run == MAX_PHRASE_WORDS) {
+            System.arraycopy(keys, 1, keys, 0, MAX_PHRASE_WORDS - 1);
+            run--;
+        }
+        keys[run] = termKey(sentence, start, end);
+        return run + 1;
+    }
+
+    private static boolean hasCandidate(Tokenizer t, int first, int len) {
+        for (int i = first; i < first + len; i++) {
+            if (t.cleanLength(i) >= MIN_TERM_LENGTH) return true;
+        }
+        return false;
+    }
+
+    private static final long PHRASE_SEED = 0x2545F4914F6CDD1DL;
+
+    static long phraseKey(long[] wordKeys, int from, int n) {
+        long key = PHRASE_SEED;
+        for (int i = from; i < from + n; i++) {
+            key = mixPhrase(key, wordKeys[i]);
+        }
+        return key;
+    }
+
+    // Order-sensitive, so "learning machine" and "machine learning" differ
+    private static long mixPhrase(long key, long wordKey) {
+        key = (key ^ wordKey) * 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    private int newTerm(long key, String text, int words) {
+        if (termCount == termFreq.length) {
+            int size = termCount * 2;
+            termKeys = Arrays.copyOf(termKeys, size);
+            termFreq = Arrays.copyOf(termFreq, size);
+            docFreq = Arrays.copyOf(docFreq, size);
+            lastSentence = Arrays.copyOf(lastSentence, size);
+            surface = Arrays.copyOf(surface, size);
+            wordCount = Arrays.copyOf(wordCount, size);
+        }
+        int id = termCount++;
+        ids.put(key, id);
+        termKeys[id] = key;
+        lastSentence[id] = -1;
+        surface[id] = text;
+        wordCount[id] = (byte) words;
+        return id;
+    }
+
+    // 64-bit FNV-1a over the lower-cased letters and digits of the token
+    static long termKey(CharSequence text, int start, int end) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!Tokenizer.isWordChar(c)) continue;
+            if (c >= 'A' && c <= 'Z') c = (char) (c + 32);
+            h = (h ^ c) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // ====== Parallel counting ======
+
+    /**
+     * Counts a stream of sentences over the common ForkJoinPool. Sentences
+     * are cut into chunks of CHUNK_SENTENCES, each chunk is counted by its
+     * own task, and the chunk stats are merged in document order on the
+     * calling thread, so the result depends only on the sentences. A document
+     * of a single chunk gets exactly the counts of one sequential pass. At
+     * most a few chunks per pool thread wait to be merged, which keeps memory
+     * bounded when sentences are streamed from a file. Not thread-safe.
+     */
+    public static class Builder {
+        private final StopwordSet stopwords;
+        private final int maxQueued = Math.max(2, 2 * ForkJoinPool.getCommonPoolParallelism());
+        private final ArrayDeque<ForkJoinTask<CorpusStats>> queued = new ArrayDeque<>();
+        private List<String> chunk = new ArrayList<>();
+        private CorpusStats merged;
+
+        public Builder(StopwordSet stopwords) {
+            this.stopwords = stopwords;
+        }
+
+        public void add(String sentence) {
+            chunk.add(sentence);
+            if (chunk.size() == CHUNK_SENTENCES) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            List<String> sentences = chunk;
+            chunk = new ArrayList<>();
+            queued.add(ForkJoinPool.commonPool().submit(() -> countChunk(stopwords, sentences)));
+            while (queued.size() > maxQueued) {
+                mergeOldest();
+            }
+        }
+
+        private void mergeOldest() {
+            CorpusStats next = queued.poll().join();
+            if (merged == null) {
+                merged = next;
+            } else {
+                merged.merge(next);
+            }
+        }
+
+        /** Waits for the queued chunks and returns the finished stats. */
+        public CorpusStats finish() {
+            if (!chunk.isEmpty()) {
+                if (queued.isEmpty() && merged == null) {
+                    merged = countChunk(stopwords, chunk); // small document: no task needed
+                } else {
+                    submitChunk();
+                }
+            }
+            while (!queued.isEmpty()) {
+                mergeOldest();
+            }
+            if (merged == null) {
+                merged = new CorpusStats(stopwords);
+            }
+            merged.pendingTextIndex = null;
+            merged.pendingTexts = null;
+            merged.finish();
+            return merged;
+        }
+
+        /** Drops the chunks not merged yet, e.g. when generation is cancelled. */
+        public void cancel() {
+            for (ForkJoinTask<CorpusStats> task : queued) {
+                task.cancel(false);
+            }
+            queued.clear();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Keyword -> alternatives dictionary used to pick MCQ distractors.
+ *
+ * The keys are compiled once into an Aho-Corasick automaton, so finding which
+ * key occurs inside an answer costs time proportional to the answer length,
+ * not to the number of keys. That keeps lookups cheap even when thousands of
+ * terms are loaded from a vocabulary file. Matching is case-insensitive and
+ * allocation free; the dictionary is immutable after construction and safe to
+ * share between threads.
+ *
+ * Vocabulary file format (UTF-8, one entry per line, '#' starts a comment):
+ *   algorithm: heuristic, formula, function, procedure
+ */
+public class DistractorDictionary {
+
+    private final String[] terms;
+    private final String[][] alternatives;
+
+    // Automaton: node 0 is the root. Each node's outgoing edges are kept
+    // sorted by character for binary search.
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[] output;    // term ending exactly at this node, or -1
+    private final int[] dictLink;  // nearest node on the fail chain with an output, or -1
+
+    public DistractorDictionary(Map<String, String[]> entries) {
+        terms = new String[entries.size()];
+        alternatives = new String[entries.size()][];
+
+        // Build the trie with growable per-node maps, then freeze it into arrays
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(-1);
+
+        int id = 0;
+        for (Map.Entry<String, String[]> e : entries.entrySet()) {
+            String key = e.getKey().toLowerCase();
+            terms[id] = key;
+            alternatives[id] = e.getValue();
+
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                Integer next = children.get(node).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new TreeMap<>());
+                    outputs.add(-1);
+                    children.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (key.length() > 0 && outputs.get(node) == -1) {
+                outputs.set(node, id);
+            }
+            id++;
+        }
+
+        int nodes = children.size();
+        edgeChars = new char[nodes][];
+        edgeTargets = new int[nodes][];
+        output = new int[nodes];
+        fail = new int[nodes];
+        dictLink = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            TreeMap<Character, Integer> edges = children.get(n);
+            edgeChars[n] = new char[edges.size()];
+            edgeTargets[n] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[n][i] = edge.getKey();
+                edgeTargets[n][i] = edge.getValue();
+                i++;
+            }
+            output[n] = outputs.get(n);
+        }
+
+        // Breadth-first pass computes failure and dictionary-suffix links
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        dictLink[0] = -1;
+        for (int child : edgeTargets[0]) {
+            fail[child] = 0;
+            dictLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                char c = edgeChars[node][i];
+                int child = edgeTargets[node][i];
+                int f = fail[node];
+                while (f != 0 && step(f, c) < 0) {
+                    f = fail[f];
+                }
+                int target = step(f, c);
+                fail[child] = (target >= 0 && target != child) ? target : 0;
+                int fl = fail[child];
+                dictLink[child] = output[fl] >= 0 ? fl : dictLink[fl];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the first key found in text (earliest end position,
+     * longest key when several end there), or -1 when none occurs.
+     */
+    public int match(CharSequence text) {
+        int node = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = step(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next < 0 ? 0 : next;
+            if (output[node] >= 0) return output[node];
+            if (dictLink[node] >= 0) return output[dictLink[node]];
+        }
+        return -1;
+    }
+
+    public String term(int id) {
+        return terms[id];
+    }
+
+    public String[] alternatives(int id) {
+        return alternatives[id];
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    private int step(int node, char c) {
+        char[] chars = edgeChars[node];
+        int lo = 0, hi = chars.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = chars[mid];
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return edgeTargets[node][mid];
+        }
+        return -1;
+    }
+
+    // ====== Loading ======
+
+    /**
+     * Adds the entries of a vocabulary file to entries. Later entries for the
+     * same key replace earlier ones, so a file can override built-in defaults.
+     */
+    public static void readEntries(File file, Map<String, String[]> entries) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                int colon = line.indexOf(':');
+                if (colon <= 0) continue;
+
+                String key = line.substring(0, colon).trim().toLowerCase();
+                List<String> values = new ArrayList<>();
+                for (String v : line.substring(colon + 1).split(",")) {
+                    String t = v.trim();
+                    if (!t.isEmpty()) values.add(t);
+                }
+                if (!key.isEmpty() && !values.isEmpty()) {
+                    entries.put(key, values.toArray(new String[0]));
+                }
+            }
+        }
+    }
+
+    /** Built-in domain terms, extended by the vocabulary file when it exists. */
+    public static DistractorDictionary loadDomainTerms(File file) {
+        Map<String, String[]> entries = new LinkedHashMap<>();
+        entries.put("java", new String[]{"Python", "JavaScript", "C++", "Ruby"});
+        entries.put("python", new String[]{"Java", "JavaScript", "Ruby", "PHP"});
+        entries.put("object", new String[]{"procedural", "functional", "declarative", "imperative"});
+        entries.put("oriented", new String[]{"based", "driven", "structured", "focused"});
+        entries.put("machine", new String[]{"human", "manual", "automated", "artificial"});
+        entries.put("learning", new String[]{"training", "teaching", "studying", "memorizing"});
+        entries.put("network", new String[]{"system", "protocol", "interface", "connection"});
+        entries.put("data", new String[]{"information", "content", "metadata", "records"});
+        entries.put("algorithm", new String[]{"heuristic", "formula", "function", "procedure"});
+        entries.put("memory", new String[]{"storage", "cache", "buffer", "register"});
+        entries.put("virtual", new String[]{"physical", "real", "actual", "concrete"});
+        entries.put("intelligence", new String[]{"automation", "computation", "processing", "analysis"});
+        return withFile(entries, file);
+    }
+
+    /** Built-in opposite pairs (first alternative is used), extended by the file when it exists. */
+    public static DistractorDictionary loadOpposites(File file) {
+        Map<String, String[]> entries = new LinkedHashMap<>();
+        entries.put("high", new String[]{"low"});
+        entries.put("fast", new String[]{"slow"});
+        entries.put("large", new String[]{"small"});
+        entries.put("simple", new String[]{"complex"});
+        entries.put("true", new String[]{"false"});
+        entries.put("correct", new String[]{"incorrect"});
+        entries.put("valid", new String[]{"invalid"});
+        return withFile(entries, file);
+    }
+
+    private static DistractorDictionary withFile(Map<String, String[]> entries, File file) {
+        if (file != null && file.exists()) {
+            try {
+                readEntries(file, entries);
+                System.out.println("Loaded " + entries.size() + " distractor entries (" + file.getName() + ")");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return new DistractorDictionary(entries);
+    }
+}
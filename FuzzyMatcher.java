@@ -0,0 +1,212 @@
+import java.text.Normalizer;
+
+/**
+ * Typo-tolerant grading of typed (fill-in-the-blank) answers.
+ *
+ * Both sides are normalized first: Unicode compatibility decomposition
+ * (NFKD) with the accents dropped, lower case, apostrophes removed and every
+ * other run of punctuation or whitespace collapsed to one space. So "Café",
+ * "cafe" and "CAFE " are equal, as are "garbage-collection" and "Garbage
+ * Collection". The normalized answer is then accepted if its Levenshtein
+ * distance to the expected answer is at most the allowed number of edits.
+ *
+ * The distance is computed with Myers' bit-parallel algorithm: the expected
+ * answer (up to 64 characters) is compiled once into one bit mask per
+ * character, and each character of the typed answer then costs a dozen
+ * long operations. The computation stops as soon as the distance can no
+ * longer come within the bound, and strings whose lengths differ by more
+ * than the bound are rejected without looking at them. Expected answers
+ * longer than 64 characters fall back to a row-by-row dynamic program.
+ *
+ * Short answers get fewer edits (one per CHARS_PER_EDIT characters) so
+ * "cat" never accepts "car", and an answer containing a digit must match
+ * exactly - "1996" is not a typo of "1995". A compiled matcher is immutable
+ * and can be reused to re-grade any number of stored answers.
+ */
+public class FuzzyMatcher {
+
+    static final int DEFAULT_MAX_EDITS = 1;
+    static final int MAX_EDITS = 3;
+    static final int CHARS_PER_EDIT = 4;
+    private static final int WORD_BITS = 64;
+
+    private final String expected;
+    private final int maxEdits;
+    // Bit i of mask[c] is set when expected[i] == c; null for expected answers over 64 chars
+    private final long[] asciiMasks;
+    private final char[] otherChars;
+    private final long[] otherMasks;
+
+    public FuzzyMatcher(String expectedAnswer, int maxEdits) {
+        this.expected = normalize(expectedAnswer);
+        this.maxEdits = allowedEdits(expected, maxEdits);
+        int m = expected.length();
+        if (m == 0 || m > WORD_BITS) {
+            asciiMasks = null;
+            otherChars = null;
+            otherMasks = null;
+            return;
+        }
+        asciiMasks = new long[128];
+        int others = 0;
+        for (int i = 0; i < m; i++) {
+            if (expected.charAt(i) >= 128) others++;
+        }
+        char[] chars = new char[others];
+        long[] masks = new long[others];
+        int distinct = 0;
+        for (int i = 0; i < m; i++) {
+            char c = expected.charAt(i);
+            if (c < 128) {
+                asciiMasks[c] |= 1L << i;
+                continue;
+            }
+            int k = 0;
+            while (k < distinct && chars[k] != c) k++;
+            if (k == distinct) chars[distinct++] = c;
+            masks[k] |= 1L << i;
+        }
+        otherChars = chars;
+        otherMasks = masks;
+    }
+
+    /** Edits this matcher accepts after the length and digit rules. */
+    public int maxEdits() {
+        return maxEdits;
+    }
+
+    public boolean matches(String answer) {
+        return distance(answer) <= maxEdits;
+    }
+
+    /**
+     * Edit distance between the normalized answer and the expected answer,
+     * or any value above maxEdits() once it is certain to exceed it.
+     */
+    public int distance(String answer) {
+        String typed = normalize(answer);
+        if (Math.abs(typed.length() - expected.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        if (asciiMasks == null) {
+            return boundedDistance(expected, typed, maxEdits);
+        }
+        return myersDistance(typed);
+    }
+
+    /** One-off comparison; build a FuzzyMatcher to grade many answers against the same key. */
+    public static boolean matches(String answer, String expectedAnswer, int maxEdits) {
+        return new FuzzyMatcher(expectedAnswer, maxEdits).matches(answer);
+    }
+
+    // Myers (1999) in Hyyro's formulation: column-wise deltas of the DP
+    // matrix kept as bit vectors, one bit per character of expected
+    private int myersDistance(String typed) {
+        int m = expected.length();
+        int n = typed.length();
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = mask(typed.charAt(j));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // Row 0 grows by one per column: global distance, not substring search
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // Each remaining column can lower the score by at most one
+            if (score - (n - 1 - j) > maxEdits) {
+                return maxEdits + 1;
+            }
+        }
+        return score;
+    }
+
+    private long mask(char c) {
+        if (c < 128) {
+            return asciiMasks[c];
+        }
+        for (int k = 0; k < otherChars.length; k++) {
+            if (otherChars[k] == c) return otherMasks[k];
+        }
+        return 0L;
+    }
+
+    // Two-row Levenshtein that gives up once a whole row is above max
+    static int boundedDistance(CharSequence a, CharSequence b, int max) {
+        int m = a.length();
+        int n = b.length();
+        int[] prev = new int[n + 1];
+        int[] cur = new int[n + 1];
+        for (int j = 0; j <= n; j++) prev[j] = j;
+        for (int i = 1; i <= m; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int cost = c == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1], prev[j]) + 1, prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[n];
+    }
+
+    private static int allowedEdits(String normalizedExpected, int maxEdits) {
+        for (int i = 0; i < normalizedExpected.length(); i++) {
+            if (Character.isDigit(normalizedExpected.charAt(i))) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(maxEdits, normalizedExpected.length() / CHARS_PER_EDIT));
+    }
+
+    // ====== Normalization ======
+
+    /** Folds case, accents, apostrophes and punctuation as described above. */
+    public static String normalize(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        CharSequence source = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) {
+                source = Normalizer.normalize(text, Normalizer.Form.NFKD);
+                break;
+            }
+        }
+        StringBuilder sb = new StringBuilder(source.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else if (c == '\'' || c == '’' || Character.getType(c) == Character.NON_SPACING_MARK) {
+                // "don't" = "dont"; combining accents left over from NFKD are dropped
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Progress and cancellation handle for one background generation run.
+ *
+ * The UI keeps the monitor and calls cancel(); the generation loops (and
+ * every fork-join leaf) poll isCancelled() or checkCancelled() between
+ * candidates, so work in flight stops within one question. Progress is
+ * reported as a percentage to an optional listener, which may be called
+ * from any worker thread and must hand the value to the UI thread itself.
+ */
+public class GenerationMonitor {
+
+    /** Monitor for callers that never cancel and don't show progress. */
+    public static final GenerationMonitor NONE = new GenerationMonitor(null);
+
+    private final IntConsumer progressListener;
+    private final AtomicLong done = new AtomicLong();
+    private volatile long total = 1;
+    private volatile boolean cancelled = false;
+    private volatile int percent = 0;
+
+    public GenerationMonitor(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Throws CancellationException once cancel() has been called. */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Question generation cancelled");
+        }
+    }
+
+    /** Starts counting towards total units of work (e.g. candidates or bytes). */
+    public void start(long total) {
+        this.total = Math.max(1, total);
+        done.set(0);
+        report(0);
+    }
+
+    /** Marks n more units done; safe to call from several worker threads. */
+    public void advance(long n) {
+        report(done.addAndGet(n));
+    }
+
+    /** Sets the absolute amount of work done so far. */
+    public void progress(long units) {
+        done.set(units);
+        report(units);
+    }
+
+    // Only changes of at least one percent reach the listener
+    private void report(long units) {
+        int p = (int) Math.min(100, units * 100 / total);
+        if (p != percent) {
+            percent = p;
+            if (progressListener != null) {
+                progressListener.accept(p);
+            }
+        }
+    }
+
+    public int percent() {
+        return percent;
+    }
+}
@@ -4,9 +4,17 @@ import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableModel;
 
 /**
  * Intelligent Quiz App - Enhanced with Swing UI
@@ -15,52 +23,40 @@ import javax.swing.filechooser.FileNameExtensionFilter;
  * How to run:
  * 1) Compile: javac IntelligentQuizApp.java
  * 2) Run: java IntelligentQuizApp
+ * 3) Offline bank (no display needed):
+ *    java IntelligentQuizApp --compile-bank <dir-of-txt> <out.qbank> [questionsPerFile] [seed]
  * 
  * Note: For PDF export, you'll need to add iText library or use built-in PDF generation
  */
 public class IntelligentQuizApp extends JFrame {
 
     // ====== User Management ======
-    private static final String USERS_FILE = "users.dat";
-    private Map<String, String> users = new HashMap<>();
+    // users.db + users.idx in the working directory; a legacy users.dat is migrated on first open
+    private static final String USERS_DIR = ".";
+    private UserStore users;
 
     private void loadUserData() {
         try {
-            File f = new File(USERS_FILE);
-            if (f.exists()) {
-                FileInputStream fis = new FileInputStream(f);
-                ObjectInputStream ois = new ObjectInputStream(fis);
-                users = (Map<String, String>) ois.readObject();
-                ois.close();
-            }
-        } catch (Exception e) {
+            users = UserStore.open(new File(USERS_DIR));
+        } catch (IOException e) {
             e.printStackTrace();
-            users = new HashMap<>();
+            users = null;
+            return;
         }
+        // Window close and the Exit screen both end in System.exit(); this
+        // compacts the journal and releases the store's files on the way out
+        UserStore store = users;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "user-store-close"));
     }
 
     // ====== Inner Model Classes ======
-    static class Question {
-        // type: 0 = MCQ, 1 = TRUE/FALSE, 2 = FILL_IN_BLANK
-        int type;
-        String text;
-        String[] options;
-        int correctIndex;
-        String correctText;
-        String userAnswer;
-        boolean isCorrect;
-
-        Question(int type, String text, String[] options, int correctIndex, String correctText) {
-            this.type = type;
-            this.text = text;
-            this.options = options;
-            this.correctIndex = correctIndex;
-            this.correctText = correctText;
-            this.userAnswer = "";
-            this.isCorrect = false;
-        }
-    }
-
+    // (Question is a top-level class shared with the generator engine)
     static class QuizResult {
         String username;
         String category;
@@ -70,6 +66,7 @@ public class IntelligentQuizApp extends JFrame {
         double accuracy;
         String timestamp;
         List<Question> questions;
+        Long seed; // reproduces a generated quiz; null for manual quizzes
 
         QuizResult(String username, String category, String difficulty, int score, int total, 
                    double accuracy, String timestamp, List<Question> questions) {
@@ -96,6 +93,7 @@ public class IntelligentQuizApp extends JFrame {
     // Dashboard Panel
     private JPanel dashboardPanel;
     private JLabel welcomeLabel;
+    private JLabel dashboardStatsLabel;
 
     // Quiz Setup Panel
     private JPanel quizSetupPanel;
@@ -103,10 +101,22 @@ public class IntelligentQuizApp extends JFrame {
     private JComboBox<String> difficultyCombo;
     private JSpinner timeLimitSpinner;
     private JSpinner numQuestionsSpinner;
+    private JSpinner typoToleranceSpinner;
     private JTextArea contentArea;
     private JLabel statusLabel;
     private JButton uploadButton;
+    private JTextField seedField;
+    private JCheckBox streamQuestionsCheck;
+    private JCheckBox sharedVariantsCheck;
     private String uploadedFileName = "";
+    // Set when an uploaded file is too large to load into contentArea; its
+    // sentences are streamed straight into the generator instead
+    private File streamedFile = null;
+    // Background generation (see runGeneration)
+    private JButton generateButton;
+    private JButton cancelGenerationButton;
+    private JProgressBar generationProgressBar;
+    private GenerationMonitor generationMonitor = null;
 
     // Quiz Panel
     private JPanel quizPanel;
@@ -127,13 +137,28 @@ public class IntelligentQuizApp extends JFrame {
 
     // Results Panel
     private JPanel resultsPanel;
-    private JTextArea resultsTextArea;
+    private JTable resultsTable;
+    private JLabel resultsCountLabel;
+    private JLabel resultsSummaryLabel;
+    private ResultsTableModel resultsModel;
+    private boolean resultsSorting = false;
+    private boolean resultsLoading = false;
+
+    // Leaderboard Panel
+    private JPanel leaderboardPanel;
+    private JComboBox<String> leaderboardCategoryCombo;
+    private JComboBox<String> leaderboardDifficultyCombo;
+    private JComboBox<String> leaderboardRankingCombo;
+    private DefaultTableModel leaderboardModel;
+    private boolean leaderboardFilling = false;
+    private boolean leaderboardLoading = false;
 
     // Signup Panel
     private JPanel signupPanel;
     private JTextField signupUserField;
     private JPasswordField signupPassField;
     private JPasswordField signupConfirmPassField;
+    private JButton signupRegisterButton;
     private JPasswordField passwordField;
 
     // Manual Quiz Creator Panel
@@ -155,14 +180,54 @@ public class IntelligentQuizApp extends JFrame {
     private boolean quizActive = false;
     private String currentCategory = "";
     private String currentDifficulty = "";
+    private Long currentSeed = null;
     private QuizResult lastQuizResult = null;
+    // Streaming mode: questions still being produced arrive through this queue
+    private BlockingQueue<Question> questionStream = null;
+    private GenerationMonitor streamMonitor = null;
+    private javax.swing.Timer questionWaitTimer = null;
 
     // ====== Sample Content ======
-    private Map<String, String> sampleContent = new HashMap<>();
+    // Static so the benchmark harness can use the same corpora without a frame
+    static final Map<String, String> sampleContent = new HashMap<>();
+    // Only draws a fresh quiz seed when the seed field is left blank
     private Random random = new Random();
 
+    // ====== Question Generator ======
+    // Built once at startup; immutable and shared by generation threads
+    private static QuestionGenerator generator;
+
+    // ====== Question Set Cache ======
+    private QuestionSetCache questionCache;
+
+    // Appends quiz_results.csv off the EDT (see ResultsWriter)
+    private ResultsWriter resultsWriter;
+    // Binary mirror of quiz_results.csv read by the results panel; opened on first use
+    private ResultsLog resultsLog;
+    // Per-user/category/difficulty statistics, updated by the writer thread as results are appended
+    private ResultsAggregates resultsStats;
+    // Top users per category/difficulty, updated the same way
+    private Leaderboard leaderboard;
+
     // ====== Constants ======
     private static final String RESULTS_FILE = "quiz_results.csv";
+    private static final String RESULTS_HEADER = "username,category,difficulty,score,total,accuracy_percent,timestamp";
+    // Results finishing within this window are written as one batch, then fsynced
+    private static final int RESULTS_LINGER_MILLIS = 50;
+    private static final boolean RESULTS_FSYNC = true;
+    private static final int LEADERBOARD_SIZE = 10;
+    private static final String QUESTION_CACHE_DIR = "question_cache";
+    private static final int QUESTION_CACHE_MEMORY_ENTRIES = 64;
+    private static final int QUESTION_CACHE_DISK_ENTRIES = 512;
+    // Fixed seed so every Quick Demo shows the same (cacheable) quiz
+    private static final long DEMO_SEED = 2025L;
+    // Seeds a blank seed field chooses from when shared variants are on (see sharedVariantSeed)
+    private static final int QUIZ_VARIANTS = 8;
+    private static final int BANK_DEFAULT_QUESTIONS_PER_FILE = 50;
+    private static final long STREAMING_THRESHOLD_BYTES = 1024 * 1024;
+    private static final int STREAMING_PREVIEW_SENTENCES = 20;
+    private static final int STREAM_QUEUE_CAPACITY = 8;
+    private static final int STREAM_POLL_MILLIS = 50;
     private static final Color PRIMARY_COLOR = new Color(63, 81, 181);
     private static final Color ACCENT_COLOR = new Color(255, 87, 34);
     private static final Color SUCCESS_COLOR = new Color(76, 175, 80);
@@ -173,13 +238,22 @@ public class IntelligentQuizApp extends JFrame {
     public IntelligentQuizApp() {
         loadUserData();
         initSampleContent();
+        initQuestionGenerator();
+        resultsWriter = ResultsWriter.install(new File(RESULTS_FILE), RESULTS_HEADER,
+                RESULTS_LINGER_MILLIS, RESULTS_FSYNC);
+        openResultsStats();
+        questionCache = new QuestionSetCache(new File(QUESTION_CACHE_DIR),
+                QUESTION_CACHE_MEMORY_ENTRIES, QUESTION_CACHE_DISK_ENTRIES);
         setupFrame();
         createPanels();
         setVisible(true);
     }
 
     // ====== Initialization ======
-    private void initSampleContent() {
+    static synchronized void initSampleContent() {
+        if (!sampleContent.isEmpty()) {
+            return;
+        }
         sampleContent.put("Java",
                 "Java is an object oriented programming language. " +
                 "It runs on the Java Virtual Machine (JVM). " +
@@ -208,6 +282,13 @@ public class IntelligentQuizApp extends JFrame {
                 "HTTP is the protocol used for web communication.");
     }
 
+    // Static so the headless bank compiler can generate without a frame
+    private static synchronized void initQuestionGenerator() {
+        if (generator == null) {
+            generator = QuestionGenerator.loadDefaults();
+        }
+    }
+
     private void setupFrame() {
         setTitle("Intelligent Quiz Application");
         setSize(1000, 700);
@@ -234,6 +315,7 @@ public class IntelligentQuizApp extends JFrame {
         createQuizPanel();
         createSummaryPanel();
         createResultsPanel();
+        createLeaderboardPanel();
         createSignupPanel();
 
         mainPanel.add(loginPanel, "login");
@@ -243,6 +325,7 @@ public class IntelligentQuizApp extends JFrame {
         mainPanel.add(quizPanel, "quiz");
         mainPanel.add(summaryPanel, "summary");
         mainPanel.add(resultsPanel, "results");
+        mainPanel.add(leaderboardPanel, "leaderboard");
         mainPanel.add(signupPanel, "signup");
 
         cardLayout.show(mainPanel, "login");
@@ -383,6 +466,7 @@ public class IntelligentQuizApp extends JFrame {
         JButton registerButton = createStyledButton("Register", SUCCESS_COLOR);
         registerButton.addActionListener(e -> handleSignup());
         signupBox.add(registerButton);
+        signupRegisterButton = registerButton;
 
         JButton backButton = createStyledButton("Back to Login", Color.GRAY);
         backButton.addActionListener(e -> cardLayout.show(mainPanel, "login"));
@@ -419,6 +503,18 @@ public class IntelligentQuizApp extends JFrame {
 
         dashboardPanel.add(headerPanel, BorderLayout.NORTH);
 
+        // Current user's statistics, read from the results aggregates
+        dashboardStatsLabel = new JLabel(" ", SwingConstants.CENTER);
+        dashboardStatsLabel.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        dashboardStatsLabel.setBorder(new EmptyBorder(10, 20, 10, 20));
+        dashboardPanel.add(dashboardStatsLabel, BorderLayout.SOUTH);
+        dashboardPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                updateDashboardStats();
+            }
+        });
+
         // Center panel with cards
         JPanel centerPanel = new JPanel(new GridBagLayout());
         centerPanel.setBackground(BACKGROUND_COLOR);
@@ -460,7 +556,7 @@ public class IntelligentQuizApp extends JFrame {
             e -> {
                 String demoCategory = "Java";
                 String demoContent = sampleContent.get(demoCategory);
-                startQuiz(demoContent, 5, demoCategory, "Medium", 5);
+                startQuiz(demoContent, 5, demoCategory, "Medium", 5, DEMO_SEED);
             }
         );
         centerPanel.add(demoCard, gbc);
@@ -479,8 +575,19 @@ public class IntelligentQuizApp extends JFrame {
         );
         centerPanel.add(resultsCard, gbc);
 
-        // Exit Card
+        // Leaderboard Card
         gbc.gridy = 4;
+        JPanel leaderboardCard = createDashboardCard(
+            "Leaderboard",
+            "See the top users for each category and difficulty",
+            "🏆",
+            new Color(255, 160, 0), // Amber
+            e -> showLeaderboard()
+        );
+        centerPanel.add(leaderboardCard, gbc);
+
+        // Exit Card
+        gbc.gridy = 5;
         JPanel exitCard = createDashboardCard(
             "Exit Application",
             "Close the application",
@@ -562,7 +669,7 @@ public class IntelligentQuizApp extends JFrame {
         centerPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
 
         // Form panel
-        JPanel formPanel = new JPanel(new GridLayout(5, 2, 15, 15));
+        JPanel formPanel = new JPanel(new GridLayout(9, 2, 15, 15));
         formPanel.setBackground(Color.WHITE);
         formPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
 
@@ -586,10 +693,43 @@ public class IntelligentQuizApp extends JFrame {
 
         // Number of questions
         formPanel.add(createFormLabel("Number of Questions:"));
-        numQuestionsSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 20, 1));
+        numQuestionsSpinner = new JSpinner(new SpinnerNumberModel(5, 1, 100, 1));
         numQuestionsSpinner.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         formPanel.add(numQuestionsSpinner);
 
+        // Typo tolerance for typed answers - 0 still ignores case, accents and punctuation
+        formPanel.add(createFormLabel("Typo Tolerance (edits):"));
+        typoToleranceSpinner = new JSpinner(new SpinnerNumberModel(
+                FuzzyMatcher.DEFAULT_MAX_EDITS, 0, FuzzyMatcher.MAX_EDITS, 1));
+        typoToleranceSpinner.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        typoToleranceSpinner.setToolTipText("Spelling mistakes accepted in fill-in-the-blank answers " +
+                "(short answers and numbers get fewer)");
+        formPanel.add(typoToleranceSpinner);
+
+        // Seed (optional) - the same seed and content always give the same quiz
+        formPanel.add(createFormLabel("Seed (optional):"));
+        seedField = new JTextField();
+        seedField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        seedField.setToolTipText("Leave blank for a new random quiz");
+        formPanel.add(seedField);
+
+        // Shared variants (opt-in) - a blank seed reuses one of a few cached quizzes
+        formPanel.add(createFormLabel("Variants:"));
+        sharedVariantsCheck = new JCheckBox("Share " + QUIZ_VARIANTS + " variants when the seed is blank");
+        sharedVariantsCheck.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        sharedVariantsCheck.setBackground(Color.WHITE);
+        sharedVariantsCheck.setToolTipText("Each quiz is one of " + QUIZ_VARIANTS +
+                " per content and settings, served from the question cache; leave off for a fresh quiz every time");
+        formPanel.add(sharedVariantsCheck);
+
+        // Streaming - start with the first question while the rest are generated
+        formPanel.add(createFormLabel("Delivery:"));
+        streamQuestionsCheck = new JCheckBox("Stream questions (first question appears immediately)");
+        streamQuestionsCheck.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        streamQuestionsCheck.setBackground(Color.WHITE);
+        streamQuestionsCheck.setToolTipText("Recommended for long exams from large documents; skips the question cache");
+        formPanel.add(streamQuestionsCheck);
+
         // Upload button
         formPanel.add(createFormLabel("Upload Text File:"));
         uploadButton = createStyledButton("📁 Browse & Upload TXT File", ACCENT_COLOR);
@@ -629,6 +769,18 @@ public class IntelligentQuizApp extends JFrame {
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 10));
         bottomPanel.setBackground(BACKGROUND_COLOR);
 
+        // Shown only while questions are being generated in the background
+        generationProgressBar = new JProgressBar(0, 100);
+        generationProgressBar.setStringPainted(true);
+        generationProgressBar.setPreferredSize(new Dimension(200, 25));
+        generationProgressBar.setVisible(false);
+        bottomPanel.add(generationProgressBar);
+
+        cancelGenerationButton = createStyledButton("✕ Cancel", ERROR_COLOR);
+        cancelGenerationButton.addActionListener(e -> cancelGeneration());
+        cancelGenerationButton.setVisible(false);
+        bottomPanel.add(cancelGenerationButton);
+
         JButton backButton = createStyledButton("← Back", Color.GRAY);
         backButton.addActionListener(e -> cardLayout.show(mainPanel, "dashboard"));
         bottomPanel.add(backButton);
@@ -646,9 +798,13 @@ public class IntelligentQuizApp extends JFrame {
         });
         bottomPanel.add(addManualBtn);
 
-        JButton startButton = createStyledButton("Generate & Start Quiz →", SUCCESS_COLOR);
-        startButton.addActionListener(e -> startQuizFromSetup());
-        bottomPanel.add(startButton);
+        JButton bankButton = createStyledButton("📚 Load Question Bank", PRIMARY_COLOR);
+        bankButton.addActionListener(e -> startQuizFromBank());
+        bottomPanel.add(bankButton);
+
+        generateButton = createStyledButton("Generate & Start Quiz →", SUCCESS_COLOR);
+        generateButton.addActionListener(e -> startQuizFromSetup());
+        bottomPanel.add(generateButton);
 
         quizSetupPanel.add(bottomPanel, BorderLayout.SOUTH);
     }
@@ -988,14 +1144,33 @@ public class IntelligentQuizApp extends JFrame {
         centerPanel.setBackground(BACKGROUND_COLOR);
         centerPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
 
-        resultsTextArea = new JTextArea();
-        resultsTextArea.setFont(new Font("Courier New", Font.PLAIN, 12));
-        resultsTextArea.setEditable(false);
-        resultsTextArea.setBackground(Color.WHITE);
-        JScrollPane scrollPane = new JScrollPane(resultsTextArea);
+        resultsCountLabel = new JLabel(" ");
+        resultsCountLabel.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+        centerPanel.add(resultsCountLabel, BorderLayout.NORTH);
+
+        // Cells are read from the results log as they are painted (see ResultsTableModel)
+        resultsTable = new JTable();
+        resultsTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        resultsTable.setRowHeight(22);
+        resultsTable.setFillsViewportHeight(true);
+        resultsTable.getTableHeader().setReorderingAllowed(false);
+        resultsTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = resultsTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortResults(resultsTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(resultsTable);
         scrollPane.setBorder(new LineBorder(PRIMARY_COLOR, 2));
         centerPanel.add(scrollPane, BorderLayout.CENTER);
 
+        resultsSummaryLabel = new JLabel(" ");
+        resultsSummaryLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        centerPanel.add(resultsSummaryLabel, BorderLayout.SOUTH);
+
         resultsPanel.add(centerPanel, BorderLayout.CENTER);
 
         // Bottom panel
@@ -1013,6 +1188,75 @@ public class IntelligentQuizApp extends JFrame {
         resultsPanel.add(bottomPanel, BorderLayout.SOUTH);
     }
 
+    // ====== Leaderboard Panel ======
+    private void createLeaderboardPanel() {
+        leaderboardPanel = new JPanel(new BorderLayout());
+        leaderboardPanel.setBackground(BACKGROUND_COLOR);
+
+        // Header
+        JPanel headerPanel = new JPanel();
+        headerPanel.setBackground(PRIMARY_COLOR);
+        headerPanel.setPreferredSize(new Dimension(1000, 80));
+        JLabel headerLabel = new JLabel("Leaderboard");
+        headerLabel.setFont(new Font("Segoe UI", Font.BOLD, 28));
+        headerLabel.setForeground(Color.WHITE);
+        headerPanel.add(headerLabel);
+        leaderboardPanel.add(headerPanel, BorderLayout.NORTH);
+
+        // Center panel
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setBackground(BACKGROUND_COLOR);
+        centerPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 0));
+        filterPanel.setBackground(BACKGROUND_COLOR);
+        leaderboardCategoryCombo = new JComboBox<>();
+        leaderboardDifficultyCombo = new JComboBox<>();
+        leaderboardRankingCombo = new JComboBox<>(new String[]{"Best accuracy", "Average accuracy"});
+        filterPanel.add(new JLabel("Category:"));
+        filterPanel.add(leaderboardCategoryCombo);
+        filterPanel.add(new JLabel("Difficulty:"));
+        filterPanel.add(leaderboardDifficultyCombo);
+        filterPanel.add(new JLabel("Rank by:"));
+        filterPanel.add(leaderboardRankingCombo);
+        for (JComboBox<String> combo : Arrays.asList(leaderboardCategoryCombo, leaderboardDifficultyCombo, leaderboardRankingCombo)) {
+            combo.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+            combo.addActionListener(e -> updateLeaderboard());
+        }
+        centerPanel.add(filterPanel, BorderLayout.NORTH);
+
+        leaderboardModel = new DefaultTableModel(new String[]{"Rank", "User", "Best", "Average", "Quizzes"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(leaderboardModel);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        table.setRowHeight(22);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(new LineBorder(PRIMARY_COLOR, 2));
+        centerPanel.add(scrollPane, BorderLayout.CENTER);
+
+        leaderboardPanel.add(centerPanel, BorderLayout.CENTER);
+
+        // Bottom panel
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
+        bottomPanel.setBackground(BACKGROUND_COLOR);
+
+        JButton refreshButton = createStyledButton("🔄 Refresh", PRIMARY_COLOR);
+        refreshButton.addActionListener(e -> showLeaderboard());
+        bottomPanel.add(refreshButton);
+
+        JButton backButton = createStyledButton("← Back to Dashboard", Color.GRAY);
+        backButton.addActionListener(e -> cardLayout.show(mainPanel, "dashboard"));
+        bottomPanel.add(backButton);
+
+        leaderboardPanel.add(bottomPanel, BorderLayout.SOUTH);
+    }
+
 
 
     // ====== Helper Methods ======
@@ -1055,9 +1299,17 @@ public class IntelligentQuizApp extends JFrame {
             return;
         }
 
-        if (users.containsKey(username) && users.get(username).equals(password)) {
+        String stored;
+        try {
+            stored = users == null ? null : users.password(username);
+        } catch (IOException e) {
+            e.printStackTrace();
+            stored = null;
+        }
+        if (password.equals(stored)) {
             currentUser = username;
             welcomeLabel.setText("Welcome, " + currentUser + "! 👋");
+            updateDashboardStats();
             cardLayout.show(mainPanel, "dashboard");
             // Clear fields
             usernameField.setText("");
@@ -1082,15 +1334,31 @@ public class IntelligentQuizApp extends JFrame {
             return;
         }
 
-        // Check if username already exists
-        if (users.containsKey(username)) {
-            JOptionPane.showMessageDialog(this, "Username already exists. Please choose another one.", "Signup Error", JOptionPane.ERROR_MESSAGE);
+        if (users == null) {
+            JOptionPane.showMessageDialog(this, "Could not save account: user store could not be opened", "Signup Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        // Add new user
-        users.put(username, password);
-        saveUserData();
+        // Add new user off the EDT (the write waits for the journal fsync);
+        // the outcome comes back through finishSignup
+        signupRegisterButton.setEnabled(false);
+        users.addAsync(username, password).whenComplete((added, error) ->
+                SwingUtilities.invokeLater(() -> finishSignup(added, error)));
+    }
+
+    // Reports the outcome of handleSignup; runs on the EDT
+    private void finishSignup(Boolean added, Throwable error) {
+        signupRegisterButton.setEnabled(true);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            cause.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Could not save account: " + cause.getMessage(), "Signup Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (!added) {
+            JOptionPane.showMessageDialog(this, "Username already exists. Please choose another one.", "Signup Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
         JOptionPane.showMessageDialog(this, "Signup successful! You can now login.", "Success", JOptionPane.INFORMATION_MESSAGE);
         cardLayout.show(mainPanel, "login");
@@ -1101,17 +1369,6 @@ public class IntelligentQuizApp extends JFrame {
         signupConfirmPassField.setText("");
     }
 
-    private void saveUserData() {
-        try {
-            FileOutputStream fos = new FileOutputStream(USERS_FILE);
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(users);
-            oos.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void addManualQuestion() {
         String questionText = manualQuestionArea.getText().trim();
         String opt1 = manualOption1.getText().trim();
@@ -1182,9 +1439,11 @@ public class IntelligentQuizApp extends JFrame {
             return;
         }
         
+        stopQuestionStream();
         currentQuestions = new ArrayList<>(manualQuestions);
         currentCategory = "Manual Quiz";
         currentDifficulty = "Custom";
+        currentSeed = null;
         totalQuestions = currentQuestions.size();
         currentQuestionIndex = 0;
         correctCount = 0;
@@ -1207,6 +1466,13 @@ public class IntelligentQuizApp extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             uploadedFileName = selectedFile.getName();
+            streamedFile = null;
+            contentArea.setEditable(true);
+
+            if (selectedFile.length() > STREAMING_THRESHOLD_BYTES) {
+                uploadLargeTextFile(selectedFile);
+                return;
+            }
 
             try {
                 BufferedReader reader = new BufferedReader(new FileReader(selectedFile));
@@ -1237,11 +1503,53 @@ public class IntelligentQuizApp extends JFrame {
         }
     }
 
+    // Large files are never loaded whole: only a short preview goes into the
+    // content area and generation streams the file sentence by sentence.
+    private void uploadLargeTextFile(File selectedFile) {
+        try (SentenceReader reader = new SentenceReader(selectedFile)) {
+            StringBuilder preview = new StringBuilder();
+            String sentence;
+            int count = 0;
+            while (count < STREAMING_PREVIEW_SENTENCES && (sentence = reader.nextSentence()) != null) {
+                preview.append(sentence).append(". ");
+                count++;
+            }
+
+            if (count == 0) {
+                statusLabel.setText("⚠ The selected file is empty. Please choose a file with content.");
+                statusLabel.setForeground(ERROR_COLOR);
+                return;
+            }
+
+            streamedFile = selectedFile;
+            contentArea.setText(preview.toString().trim() + "\n\n[Preview only - the full file (" +
+                    (selectedFile.length() / (1024 * 1024)) + " MB) will be streamed during generation]");
+            contentArea.setCaretPosition(0);
+            contentArea.setEditable(false);
+            statusLabel.setText("✓ Large file selected for streaming: " + uploadedFileName);
+            statusLabel.setForeground(SUCCESS_COLOR);
+            uploadButton.setText("✓ " + uploadedFileName);
+        } catch (IOException ex) {
+            statusLabel.setText("⚠ Error reading file: " + ex.getMessage());
+            statusLabel.setForeground(ERROR_COLOR);
+            JOptionPane.showMessageDialog(this, "Error reading file: " + ex.getMessage(),
+                    "File Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void startQuizFromSetup() {
         String category = (String) categoryCombo.getSelectedItem();
         String difficulty = (String) difficultyCombo.getSelectedItem();
         int numQuestions = (Integer) numQuestionsSpinner.getValue();
         int minutes = (Integer) timeLimitSpinner.getValue();
+        long seed = seedField.getText().trim().isEmpty() && sharedVariantsCheck.isSelected()
+                ? sharedVariantSeed() : parseSeed(seedField.getText());
+        currentSeed = seed;
+
+        if (streamedFile != null) {
+            startQuizFromFile(streamedFile, numQuestions, category, difficulty, minutes, seed);
+            return;
+        }
 
         String content = contentArea.getText().trim();
         if (content.isEmpty()) {
@@ -1257,62 +1565,357 @@ public class IntelligentQuizApp extends JFrame {
             }
         }
         
-        startQuiz(content, numQuestions, category, difficulty, minutes);
+        startQuiz(content, numQuestions, category, difficulty, minutes, seed);
+    }
+
+    // With shared variants on, a blank seed field picks one of QUIZ_VARIANTS fixed
+    // seeds at random: a class taking the same content gets different quizzes, but
+    // from a small pool whose sets are reused from the question cache.
+    private long sharedVariantSeed() {
+        return parseSeed("#" + (1 + random.nextInt(QUIZ_VARIANTS)));
     }
 
-    private void startQuiz(String content, int numQuestions, String category, String difficulty, int minutes) {
+    // Blank = a fresh random seed; numbers are used as-is and any other text is
+    // hashed, so "midterm" always reproduces the same quiz.
+    private long parseSeed(String text) {
+        String t = text == null ? "" : text.trim();
+        if (t.isEmpty()) {
+            return random.nextLong();
+        }
         try {
+            return Long.parseLong(t);
+        } catch (NumberFormatException e) {
+            return t.hashCode();
+        }
+    }
+
+    // If the content came from an uploaded/custom file, prefer MCQs so users get
+    // multiple-choice questions (not only True/False). We detect this by
+    // checking the category or whether an uploaded file name is present.
+    private boolean prefersMCQ(String category) {
+        return "Custom".equalsIgnoreCase(category) || (uploadedFileName != null && !uploadedFileName.isEmpty());
+    }
+
+    private void startQuiz(String content, int numQuestions, String category, String difficulty,
+                           int minutes, long seed) {
+        boolean forceMCQ = prefersMCQ(category);
+        if (streamQuestionsCheck.isSelected()) {
+            launchStreamingQuiz(content, null, numQuestions, forceMCQ, seed, category, difficulty, minutes);
+            return;
+        }
+        runGeneration(monitor -> {
+            // Reuse a cached set when the same content and settings were used before
+            String cacheKey = QuestionSetCache.key(content, numQuestions, category, difficulty, seed, forceMCQ,
+                    generator.dictionaryFingerprint());
+            List<Question> generatedQuestions = questionCache.get(cacheKey);
+            if (generatedQuestions != null) {
+                System.out.println("Loaded " + generatedQuestions.size() + " questions from cache");
+                return generatedQuestions;
+            }
             // Generate questions from content
-            List<Question> generatedQuestions = generateQuestions(content, numQuestions, category, difficulty);
-            
-            if (generatedQuestions == null) {
-                generatedQuestions = new ArrayList<>();
+            generatedQuestions = generator.generateQuestions(content, numQuestions, seed, forceMCQ, monitor);
+            if (!generatedQuestions.isEmpty()) {
+                questionCache.put(cacheKey, generatedQuestions);
             }
-            
-            currentQuestions = new ArrayList<>(generatedQuestions);
-            
-            // Merge manual questions with auto-generated questions
-            if (!manualQuestions.isEmpty()) {
-                int totalManual = manualQuestions.size();
-                int totalAuto = currentQuestions.size();
-                currentQuestions.addAll(new ArrayList<>(manualQuestions));
-                
-                // Shuffle to mix manual and auto-generated questions
-                Collections.shuffle(currentQuestions, random);
-                
-                JOptionPane.showMessageDialog(this,
-                    "Quiz created with:\n" +
-                    "• " + totalAuto + " auto-generated questions\n" +
-                    "• " + totalManual + " manual questions\n" +
-                    "Total: " + currentQuestions.size() + " questions",
-                    "Quiz Ready", JOptionPane.INFORMATION_MESSAGE);
+            return generatedQuestions;
+        }, category, difficulty, minutes, "Please try again or check your content.");
+    }
+
+    private void startQuizFromFile(File file, int numQuestions, String category, String difficulty,
+                                   int minutes, long seed) {
+        if (streamQuestionsCheck.isSelected()) {
+            launchStreamingQuiz(null, file, numQuestions, true, seed, category, difficulty, minutes);
+            return;
+        }
+        runGeneration(monitor -> {
+            String cacheKey = QuestionSetCache.key(file, numQuestions, category, difficulty, seed, true,
+                    generator.dictionaryFingerprint());
+            List<Question> generatedQuestions = questionCache.get(cacheKey);
+            if (generatedQuestions != null) {
+                System.out.println("Loaded " + generatedQuestions.size() + " questions from cache");
+                return generatedQuestions;
             }
+            generatedQuestions = generator.generateQuestionsFromFile(file, numQuestions, seed, monitor);
+            if (!generatedQuestions.isEmpty()) {
+                questionCache.put(cacheKey, generatedQuestions);
+            }
+            return generatedQuestions;
+        }, category, difficulty, minutes, "Please try again or check your file.");
+    }
+
+    // ====== Background Generation ======
+    private interface GenerationJob {
+        List<Question> run(GenerationMonitor monitor) throws Exception;
+    }
+
+    /**
+     * Runs a generation job on a SwingWorker thread so the window stays
+     * responsive. Progress goes to the setup panel's progress bar, the Cancel
+     * button stops the job between candidates, and the finished questions are
+     * handed back to launchQuiz on the EDT. Jobs started elsewhere (the Quick
+     * Demo card) switch to the setup panel so progress and Cancel are visible;
+     * a second request while one runs is turned away there with a message.
+     */
+    private void runGeneration(GenerationJob job, String category, String difficulty, int minutes,
+                               String errorHint) {
+        cardLayout.show(mainPanel, "setup");
+        if (generationMonitor != null) {
+            statusLabel.setText("A quiz is already being generated - wait for it or cancel it first.");
+            statusLabel.setForeground(ERROR_COLOR);
+            return; // one generation at a time
+        }
+        GenerationMonitor monitor = new GenerationMonitor(
+                percent -> SwingUtilities.invokeLater(() -> generationProgressBar.setValue(percent)));
+        generationMonitor = monitor;
+        setGenerating(true);
+
+        new SwingWorker<List<Question>, Void>() {
+            @Override
+            protected List<Question> doInBackground() throws Exception {
+                return job.run(monitor);
+            }
+
+            @Override
+            protected void done() {
+                generationMonitor = null;
+                setGenerating(false);
+                if (monitor.isCancelled()) {
+                    statusLabel.setText("Question generation cancelled.");
+                    statusLabel.setForeground(Color.GRAY);
+                    return;
+                }
+                try {
+                    launchQuiz(get(), category, difficulty, minutes);
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(IntelligentQuizApp.this,
+                        "Error starting quiz: " + cause.getMessage() + "\n\n" + errorHint,
+                        "Quiz Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void cancelGeneration() {
+        if (generationMonitor != null) {
+            generationMonitor.cancel();
+            statusLabel.setText("Cancelling question generation...");
+            statusLabel.setForeground(Color.GRAY);
+        }
+    }
+
+    private void setGenerating(boolean generating) {
+        generationProgressBar.setValue(0);
+        generationProgressBar.setVisible(generating);
+        cancelGenerationButton.setVisible(generating);
+        generateButton.setEnabled(!generating);
+        if (generating) {
+            statusLabel.setText("Generating questions...");
+            statusLabel.setForeground(Color.BLUE);
+        }
+        quizSetupPanel.revalidate();
+    }
+
+    // Draws numQuestions questions from a compiled bank; the seed picks which ones
+    private void startQuizFromBank() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select a Question Bank");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Question Banks (*.qbank)", "qbank"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        String category = (String) categoryCombo.getSelectedItem();
+        String difficulty = (String) difficultyCombo.getSelectedItem();
+        int numQuestions = (Integer) numQuestionsSpinner.getValue();
+        int minutes = (Integer) timeLimitSpinner.getValue();
+        long seed = parseSeed(seedField.getText());
+        currentSeed = seed;
+        SplittableRandom rnd = new SplittableRandom(seed);
+
+        try (QuestionBank bank = QuestionBank.open(fileChooser.getSelectedFile())) {
+            // Partial Fisher-Yates over the indices: only the chosen records are decoded
+            int[] indices = new int[bank.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            List<Question> picked = new ArrayList<>();
+            for (int i = 0; i < indices.length && picked.size() < numQuestions; i++) {
+                int j = i + rnd.nextInt(indices.length - i);
+                int tmp = indices[i];
+                indices[i] = indices[j];
+                indices[j] = tmp;
+                picked.add(bank.get(indices[i]));
+            }
+            statusLabel.setText("✓ Loaded " + picked.size() + " of " + bank.size() + " questions from " +
+                    bank.file().getName());
+            statusLabel.setForeground(SUCCESS_COLOR);
+            launchQuiz(picked, category, difficulty, minutes);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            statusLabel.setText("⚠ Error reading question bank: " + ex.getMessage());
+            statusLabel.setForeground(ERROR_COLOR);
+            JOptionPane.showMessageDialog(this, "Error reading question bank: " + ex.getMessage(),
+                    "Question Bank Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void launchQuiz(List<Question> generatedQuestions, String category, String difficulty, int minutes) {
+        if (generatedQuestions == null) {
+            generatedQuestions = new ArrayList<>();
+        }
+        
+        stopQuestionStream();
+        currentQuestions = new ArrayList<>(generatedQuestions);
+        
+        // Merge manual questions with auto-generated questions
+        if (!manualQuestions.isEmpty()) {
+            // Manual questions win: generated ones that repeat them are dropped
+            NearDuplicateFilter filter = generator.newDuplicateFilter();
+            for (Question q : manualQuestions) {
+                filter.add(q);
+            }
+            currentQuestions.removeIf(q -> !filter.add(q));
+
+            int totalManual = manualQuestions.size();
+            int totalAuto = currentQuestions.size();
+            currentQuestions.addAll(new ArrayList<>(manualQuestions));
             
-            if (currentQuestions.isEmpty()) {
+            // Shuffle to mix manual and auto-generated questions; the quiz seed
+            // keeps the order reproducible
+            QuestionGenerator.shuffle(currentQuestions,
+                    new SplittableRandom(QuestionGenerator.mixSeed(currentSeed == null ? 0 : currentSeed, -2)));
+            
+            JOptionPane.showMessageDialog(this,
+                "Quiz created with:\n" +
+                "• " + totalAuto + " auto-generated questions\n" +
+                "• " + totalManual + " manual questions\n" +
+                "Total: " + currentQuestions.size() + " questions",
+                "Quiz Ready", JOptionPane.INFORMATION_MESSAGE);
+        }
+        
+        if (currentQuestions.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Could not generate questions from the content. Try adding more sentences or add manual questions.",
+                    "Generation Failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        currentCategory = category;
+        currentDifficulty = difficulty;
+        totalQuestions = currentQuestions.size();
+        currentQuestionIndex = 0;
+        correctCount = 0;
+        remainingSeconds = minutes * 60;
+
+        startTimer();
+        quizActive = true;
+
+        showCurrentQuestion();
+        cardLayout.show(mainPanel, "quiz");
+    }
+
+    // ====== Streaming Delivery ======
+    /**
+     * Starts the quiz before its questions exist: a producer thread runs
+     * QuestionGenerator.streamQuestions, which generates them one at a time
+     * into a small bounded queue, and the quiz
+     * screen takes from it as the user advances. The first question usually
+     * arrives within milliseconds; the queue bound keeps the producer only a
+     * few questions ahead. Streamed sets are not cached.
+     */
+    private void launchStreamingQuiz(String content, File file, int numQuestions, boolean forceMCQ, long seed,
+                                     String category, String difficulty, int minutes) {
+        stopQuestionStream();
+        final BlockingQueue<Question> queue = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+        final GenerationMonitor monitor = new GenerationMonitor(null);
+        final List<Question> manual = new ArrayList<>(manualQuestions);
+        questionStream = queue;
+        streamMonitor = monitor;
+        Thread producer = new Thread(() -> generator.streamQuestions(content, file, numQuestions, forceMCQ, seed,
+                manual, queue, monitor), "question-producer");
+        producer.setDaemon(true);
+        producer.start();
+
+        currentQuestions = new ArrayList<>();
+        currentCategory = category;
+        currentDifficulty = difficulty;
+        totalQuestions = numQuestions + manualQuestions.size(); // lowered if the content runs out
+        currentQuestionIndex = 0;
+        correctCount = 0;
+        remainingSeconds = minutes * 60;
+
+        startTimer();
+        quizActive = true;
+
+        cardLayout.show(mainPanel, "quiz");
+        showWhenAvailable();
+    }
+
+    // Shows the current question once it has arrived, polling the stream without blocking the EDT
+    private void showWhenAvailable() {
+        if (questionWaitTimer != null) {
+            questionWaitTimer.stop();
+            questionWaitTimer = null;
+        }
+        if (takeFromStream()) {
+            showCurrentQuestion();
+            return;
+        }
+        if (!quizActive) {
+            return;
+        }
+        if (questionStream == null) {
+            // Producer finished early: the quiz is as long as what it produced
+            totalQuestions = currentQuestions.size();
+            if (totalQuestions == 0) {
+                stopTimer();
+                quizActive = false;
                 JOptionPane.showMessageDialog(this,
                         "Could not generate questions from the content. Try adding more sentences or add manual questions.",
                         "Generation Failed", JOptionPane.ERROR_MESSAGE);
-                return;
+                cardLayout.show(mainPanel, "setup");
+            } else {
+                endQuiz();
             }
+            return;
+        }
+        questionCounterLabel.setText("Question " + (currentQuestionIndex + 1) + " / " + totalQuestions);
+        feedbackLabel.setText("Preparing the next question...");
+        feedbackLabel.setForeground(Color.GRAY);
+        questionWaitTimer = new javax.swing.Timer(STREAM_POLL_MILLIS, e -> showWhenAvailable());
+        questionWaitTimer.setRepeats(false);
+        questionWaitTimer.start();
+    }
 
-            currentCategory = category;
-            currentDifficulty = difficulty;
-            totalQuestions = currentQuestions.size();
-            currentQuestionIndex = 0;
-            correctCount = 0;
-            remainingSeconds = minutes * 60;
-
-            startTimer();
-            quizActive = true;
+    // Moves queued questions into currentQuestions; true when the current index is available
+    private boolean takeFromStream() {
+        while (questionStream != null && currentQuestionIndex >= currentQuestions.size()) {
+            Question q = questionStream.poll();
+            if (q == null) {
+                return false;
+            }
+            if (q == QuestionGenerator.END_OF_STREAM) {
+                questionStream = null;
+                streamMonitor = null;
+            } else {
+                currentQuestions.add(q);
+            }
+        }
+        return currentQuestionIndex < currentQuestions.size();
+    }
 
-            showCurrentQuestion();
-            cardLayout.show(mainPanel, "quiz");
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this,
-                "Error starting quiz: " + ex.getMessage() + "\n\nPlease try again or check your content.",
-                "Quiz Error", JOptionPane.ERROR_MESSAGE);
+    private void stopQuestionStream() {
+        if (streamMonitor != null) {
+            streamMonitor.cancel();
+        }
+        if (questionWaitTimer != null) {
+            questionWaitTimer.stop();
+            questionWaitTimer = null;
         }
+        questionStream = null;
+        streamMonitor = null;
     }
 
     private void cancelQuiz() {
@@ -1322,6 +1925,7 @@ public class IntelligentQuizApp extends JFrame {
 
         if (confirm == JOptionPane.YES_OPTION) {
             stopTimer();
+            stopQuestionStream();
             quizActive = false;
             cardLayout.show(mainPanel, "dashboard");
         }
@@ -1331,7 +1935,7 @@ public class IntelligentQuizApp extends JFrame {
         if (currentQuestionIndex < 0 || currentQuestionIndex >= currentQuestions.size()) return;
 
         Question q = currentQuestions.get(currentQuestionIndex);
-        questionCounterLabel.setText("Question " + (currentQuestionIndex + 1) + " / " + currentQuestions.size());
+        questionCounterLabel.setText("Question " + (currentQuestionIndex + 1) + " / " + totalQuestions);
         questionTextArea.setText(q.text);
 
         optionsPanel.removeAll();
@@ -1466,9 +2070,9 @@ public class IntelligentQuizApp extends JFrame {
         optionsPanel.revalidate();
         optionsPanel.repaint();
 
-        int progress = ((currentQuestionIndex + 1) * 100) / currentQuestions.size();
+        int progress = ((currentQuestionIndex + 1) * 100) / totalQuestions;
         progressBar.setValue(progress);
-        progressBar.setString("Progress: " + (currentQuestionIndex + 1) + " / " + currentQuestions.size());
+        progressBar.setString("Progress: " + (currentQuestionIndex + 1) + " / " + totalQuestions);
     }
 
     private void handleNextQuestion() {
@@ -1476,6 +2080,9 @@ public class IntelligentQuizApp extends JFrame {
             feedbackLabel.setText("Quiz not active.");
             return;
         }
+        if (currentQuestionIndex >= currentQuestions.size()) {
+            return; // streaming: the question is still on its way
+        }
 
         if (!evaluateCurrentAnswer()) {
             JOptionPane.showMessageDialog(this,
@@ -1485,11 +2092,11 @@ public class IntelligentQuizApp extends JFrame {
         }
 
         currentQuestionIndex++;
-        if (currentQuestionIndex >= currentQuestions.size()) {
+        if (currentQuestionIndex >= totalQuestions) {
             endQuiz();
         } else {
-            // Small delay before showing next question
-            javax.swing.Timer delayTimer = new javax.swing.Timer(1500, e -> showCurrentQuestion());
+            // Small delay before showing next question (taken from the stream when streaming)
+            javax.swing.Timer delayTimer = new javax.swing.Timer(1500, e -> showWhenAvailable());
             delayTimer.setRepeats(false);
             delayTimer.start();
         }
@@ -1537,10 +2144,15 @@ public class IntelligentQuizApp extends JFrame {
 
             q.userAnswer = answer;
 
-            if (answer.equalsIgnoreCase(q.correctText)) {
+            FuzzyMatcher matcher = new FuzzyMatcher(q.correctText, (Integer) typoToleranceSpinner.getValue());
+            if (matcher.matches(answer)) {
                 correctCount++;
                 q.isCorrect = true;
-                feedbackLabel.setText("✓ Correct!");
+                if (answer.equalsIgnoreCase(q.correctText)) {
+                    feedbackLabel.setText("✓ Correct!");
+                } else {
+                    feedbackLabel.setText("✓ Correct! (spelled \"" + q.correctText + "\")");
+                }
                 feedbackLabel.setForeground(SUCCESS_COLOR);
             } else {
                 q.isCorrect = false;
@@ -1553,6 +2165,7 @@ public class IntelligentQuizApp extends JFrame {
 
     private void endQuiz() {
         stopTimer();
+        stopQuestionStream();
         quizActive = false;
 
         double accuracy = (correctCount * 100.0) / totalQuestions;
@@ -1560,6 +2173,7 @@ public class IntelligentQuizApp extends JFrame {
 
         lastQuizResult = new QuizResult(currentUser, currentCategory, currentDifficulty,
                 correctCount, totalQuestions, accuracy, timestamp, new ArrayList<>(currentQuestions));
+        lastQuizResult.seed = currentSeed;
 
         displaySummary();
         appendResultToCSV(correctCount, totalQuestions, accuracy);
@@ -1578,6 +2192,9 @@ public class IntelligentQuizApp extends JFrame {
         summary.append("User: ").append(lastQuizResult.username).append("\n");
         summary.append("Category: ").append(lastQuizResult.category).append("\n");
         summary.append("Difficulty: ").append(lastQuizResult.difficulty).append("\n");
+        if (lastQuizResult.seed != null) {
+            summary.append("Seed: ").append(lastQuizResult.seed).append(" (enter it to replay this quiz)\n");
+        }
         summary.append("Date & Time: ").append(lastQuizResult.timestamp).append("\n\n");
 
         summary.append("────────────────────────────────────────────────────────\n");
@@ -1610,394 +2227,88 @@ public class IntelligentQuizApp extends JFrame {
         summaryTextArea.setCaretPosition(0);
     }
 
-    // ====== Question Generation ======
-    private List<Question> generateQuestions(String content, int maxQuestions,
-                                            String category, String difficulty) {
-        List<Question> questions = new ArrayList<>();
-        
-        try {
-            if (content == null || content.trim().isEmpty()) {
-                System.out.println("Error: Content is empty");
-                return questions;
-            }
-
-            String[] sentences = content.split("[\\.\\?!]");
-            List<String> cleaned = new ArrayList<>();
-            for (String s : sentences) {
-                String t = s.trim();
-                if (t.split("\\s+").length >= 4) {
-                    cleaned.add(t);
-                }
-            }
+    // ====== Question Bank Compiler ======
+    /**
+     * Headless batch mode: generates questions from every .txt file in dir
+     * (one file per worker thread) and writes them to a single bank file.
+     * File i uses seed mixSeed(seed, i), so a rerun over the same files gives
+     * the same bank regardless of thread scheduling.
+     */
+    static int compileQuestionBank(File dir, File out, int perFile, long seed) throws Exception {
+        File[] files = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".txt"));
+        if (files == null || files.length == 0) {
+            System.out.println("No .txt files found in " + dir);
+            return 0;
+        }
+        Arrays.sort(files);
+        initQuestionGenerator();
 
-            if (cleaned.isEmpty()) {
-                System.out.println("Error: No valid sentences found");
-                return questions;
+        long startTime = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<List<Question>>> results = new ArrayList<>();
+            for (int i = 0; i < files.length; i++) {
+                final File file = files[i];
+                final long fileSeed = QuestionGenerator.mixSeed(seed, i);
+                results.add(pool.submit(() -> generator.generateQuestionsFromFile(file, perFile,
+                        fileSeed, GenerationMonitor.NONE)));
             }
-            
-            System.out.println("Generating questions from " + cleaned.size() + " sentences...");
-
-            int idx = 0;
-            // If the content came from an uploaded/custom file, prefer MCQs so users get
-            // multiple-choice questions (not only True/False). We detect this by
-            // checking the category or whether an uploaded file name is present.
-            boolean forceMCQ = "Custom".equalsIgnoreCase(category) || (uploadedFileName != null && !uploadedFileName.isEmpty());
-
-            while (questions.size() < maxQuestions && idx < cleaned.size() * 2) {
-                String sentence = cleaned.get(idx % cleaned.size());
-                int type;
-
-                if (forceMCQ) {
-                    type = 0; // force MCQ for uploaded/custom content
-                } else {
-                    // keep a mix for sample content: rotate types for variety
-                    type = questions.size() % 3;
-                }
 
+            // One filter across the whole bank, fed in file order so reruns match
+            NearDuplicateFilter filter = generator.newDuplicateFilter();
+            List<String> sources = new ArrayList<>();
+            List<Question> questions = new ArrayList<>();
+            int[] sourceIds = new int[files.length * perFile];
+            int duplicates = 0;
+            for (int i = 0; i < files.length; i++) {
+                List<Question> generated;
                 try {
-                    if (type == 0) {
-                        Question q = generateMCQ(sentence);
-                        if (q != null) {
-                            questions.add(q);
-                            System.out.println("Generated MCQ " + questions.size());
-                        }
-                    } else if (type == 1) {
-                        Question q = generateTrueFalse(sentence);
-                        if (q != null) {
-                            questions.add(q);
-                            System.out.println("Generated True/False " + questions.size());
-                        }
-                    } else {
-                        Question q = generateFillBlank(sentence);
-                        if (q != null) {
-                            questions.add(q);
-                            System.out.println("Generated Fill Blank " + questions.size());
-                        } else {
-                            q = generateTrueFalse(sentence);
-                            if (q != null) {
-                                questions.add(q);
-                                System.out.println("Generated True/False (fallback) " + questions.size());
-                            }
-                        }
-                    }
+                    generated = results.get(i).get();
                 } catch (Exception e) {
-                    System.out.println("Error generating question from sentence: " + e.getMessage());
-                    e.printStackTrace();
-                }
-                
-                idx++;
-            }
-            
-            System.out.println("Total questions generated: " + questions.size());
-        } catch (Exception e) {
-            System.out.println("Error in generateQuestions: " + e.getMessage());
-            e.printStackTrace();
-        }
-
-        Collections.shuffle(questions, random);
-        if (questions.size() > maxQuestions) {
-            questions = questions.subList(0, maxQuestions);
-        }
-        return questions;
-    }
-
-    private Question generateMCQ(String sentence) {
-        try {
-            if (sentence == null || sentence.trim().isEmpty()) {
-                return null;
-            }
-            
-            // Extract key information from the sentence to create meaningful MCQ
-            String[] words = sentence.trim().split("\\s+");
-            
-            if (words.length == 0) {
-                return null;
-            }
-            
-            // Try to identify a key term or concept in the sentence
-            String keyTerm = null;
-            String cleanKeyTerm = null;
-            String questionText;
-            
-            // Look for important words (nouns, technical terms)
-            for (String word : words) {
-                String cleanWord = word.replaceAll("[^a-zA-Z0-9]", "");
-                if (cleanWord.length() > 5 && !isCommonWord(cleanWord)) {
-                    keyTerm = word;
-                    cleanKeyTerm = cleanWord;
-                    break;
-                }
-            }
-            
-            if (keyTerm != null && cleanKeyTerm != null && words.length > 5) {
-                // Create a question by replacing the key term with a blank or asking about it
-                questionText = "According to the content:\n\n\"" + sentence + "\"\n\nWhat word best fits in place of \"" + cleanKeyTerm + "\"?";
-                
-                // Generate plausible options including the correct answer
-                String correct = cleanKeyTerm;
-                List<String> distractors = generateDistractors(cleanKeyTerm, sentence);
-                
-                if (distractors == null || distractors.isEmpty()) {
-                    // Fallback if distractor generation failed
-                    distractors = new ArrayList<>();
-                    distractors.add("Option A");
-                    distractors.add("Option B");
-                    distractors.add("Option C");
-                }
-                
-                List<String> opts = new ArrayList<>();
-                opts.add(correct);
-                opts.addAll(distractors);
-                Collections.shuffle(opts, random);
-                int correctIndex = opts.indexOf(correct);
-                
-                String[] formattedOptions = new String[Math.min(4, opts.size())];
-                for (int i = 0; i < formattedOptions.length; i++) {
-                    formattedOptions[i] = opts.get(i);
-                }
-                
-                return new Question(0, questionText, formattedOptions, correctIndex, null);
-            } else {
-                // Fallback: comprehension-style question
-                questionText = "Which statement is correct about the following?\n\n" + sentence;
-                
-                String correct = "The statement is accurate as presented";
-                String[] distractors = new String[]{
-                    "The statement is completely false",
-                    "The opposite meaning is true",
-                    "This information is not mentioned"
-                };
-                
-                List<String> opts = new ArrayList<>();
-                opts.add(correct);
-                opts.addAll(Arrays.asList(distractors));
-                Collections.shuffle(opts, random);
-                int correctIndex = opts.indexOf(correct);
-                
-                String[] formattedOptions = new String[4];
-                for (int i = 0; i < 4; i++) {
-                    formattedOptions[i] = opts.get(i);
+                    System.out.println("Skipping " + files[i].getName() + ": " + e.getMessage());
+                    continue;
                 }
-                
-                return new Question(0, questionText, formattedOptions, correctIndex, null);
-            }
-        } catch (Exception e) {
-            System.out.println("Error in generateMCQ: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-    
-    private boolean isCommonWord(String word) {
-        word = word.toLowerCase().replaceAll("[^a-z]", "");
-        String[] common = {"the", "and", "for", "are", "but", "not", "you", "all", "can", "her", "was", "one", 
-                          "our", "out", "day", "get", "has", "him", "his", "how", "man", "new", "now", "old", 
-                          "see", "two", "way", "who", "boy", "did", "its", "let", "put", "say", "she", "too", "use"};
-        for (String c : common) {
-            if (word.equals(c)) return true;
-        }
-        return false;
-    }
-    
-    private List<String> generateDistractors(String correctAnswer, String context) {
-        List<String> distractors = new ArrayList<>();
-        
-        try {
-            if (correctAnswer == null || correctAnswer.trim().isEmpty()) {
-                distractors.add("Option A");
-                distractors.add("Option B");
-                distractors.add("Option C");
-                return distractors;
-            }
-            
-            // Domain-specific wrong answers based on common technical terms
-            Map<String, String[]> domainTerms = new HashMap<>();
-            domainTerms.put("java", new String[]{"Python", "JavaScript", "C++", "Ruby"});
-            domainTerms.put("python", new String[]{"Java", "JavaScript", "Ruby", "PHP"});
-            domainTerms.put("object", new String[]{"procedural", "functional", "declarative", "imperative"});
-            domainTerms.put("oriented", new String[]{"based", "driven", "structured", "focused"});
-            domainTerms.put("machine", new String[]{"human", "manual", "automated", "artificial"});
-            domainTerms.put("learning", new String[]{"training", "teaching", "studying", "memorizing"});
-            domainTerms.put("network", new String[]{"system", "protocol", "interface", "connection"});
-            domainTerms.put("data", new String[]{"information", "content", "metadata", "records"});
-            domainTerms.put("algorithm", new String[]{"heuristic", "formula", "function", "procedure"});
-            domainTerms.put("memory", new String[]{"storage", "cache", "buffer", "register"});
-            domainTerms.put("virtual", new String[]{"physical", "real", "actual", "concrete"});
-            domainTerms.put("intelligence", new String[]{"automation", "computation", "processing", "analysis"});
-            
-            String lowerAnswer = correctAnswer.toLowerCase();
-        
-        // Strategy 1: Check for domain-specific alternatives
-        for (String key : domainTerms.keySet()) {
-            if (lowerAnswer.contains(key)) {
-                String[] alternatives = domainTerms.get(key);
-                for (int i = 0; i < Math.min(2, alternatives.length); i++) {
-                    int randomIdx = random.nextInt(alternatives.length);
-                    if (!distractors.contains(alternatives[randomIdx])) {
-                        distractors.add(alternatives[randomIdx]);
+                for (Question q : generated) {
+                    if (!filter.add(q)) {
+                        duplicates++;
+                        continue;
                     }
+                    sourceIds[questions.size()] = sources.size();
+                    questions.add(q);
                 }
-                break;
-            }
-        }
-        
-        // Strategy 2: Similar words with character variations
-        if (correctAnswer.length() > 5 && distractors.size() < 3) {
-            // Swap characters
-            char[] chars = correctAnswer.toCharArray();
-            if (chars.length > 2) {
-                char temp = chars[0];
-                chars[0] = chars[1];
-                chars[1] = temp;
-                distractors.add(new String(chars));
-            }
-        }
-        
-        // Strategy 3: Common wrong answers for specific types
-        if (correctAnswer.matches(".*[0-9].*")) {
-            // If it contains numbers, generate similar numbers
-            distractors.add(correctAnswer.replaceAll("[0-9]", String.valueOf(random.nextInt(9) + 1)));
-        }
-        
-        // Strategy 4: Opposite or contrasting terms
-        Map<String, String> opposites = new HashMap<>();
-        opposites.put("high", "low");
-        opposites.put("fast", "slow");
-        opposites.put("large", "small");
-        opposites.put("simple", "complex");
-        opposites.put("true", "false");
-        opposites.put("correct", "incorrect");
-        opposites.put("valid", "invalid");
-        
-        for (String key : opposites.keySet()) {
-            if (lowerAnswer.contains(key)) {
-                distractors.add(correctAnswer.replace(key, opposites.get(key)));
-                break;
-            }
-        }
-        
-        // Strategy 5: Add generic but contextually wrong terms
-        String[] genericWrong = {
-            "None of the above",
-            "All options are correct",
-            "Cannot be determined",
-            "Depends on context",
-            "Not applicable",
-            "Undefined behavior",
-            "Random value",
-            "System default"
-        };
-        
-        // Fill remaining slots with unique distractors
-        int attempts = 0;
-        while (distractors.size() < 3 && attempts < 20) {
-            String candidate;
-            if (distractors.size() < 1) {
-                // First distractor: try generic wrong answer
-                candidate = genericWrong[random.nextInt(genericWrong.length)];
-            } else if (distractors.size() < 2 && correctAnswer.length() > 4) {
-                // Second distractor: modified correct answer
-                if (random.nextBoolean()) {
-                    candidate = correctAnswer.substring(0, correctAnswer.length() - 1) + "ed";
-                } else {
-                    candidate = "Non-" + correctAnswer.toLowerCase();
-                }
-            } else {
-                // Third distractor: another variation
-                candidate = correctAnswer.toLowerCase() + "ing";
-            }
-            
-            if (!distractors.contains(candidate) && !candidate.equalsIgnoreCase(correctAnswer)) {
-                distractors.add(candidate);
-            }
-            attempts++;
-        }
-        
-        // Ensure we have at least 3 distractors - add simple ones if needed
-        while (distractors.size() < 3) {
-            String simple = "Option " + (char)('A' + distractors.size());
-            if (!distractors.contains(simple)) {
-                distractors.add(simple);
-            }
-        }
-        
-        // Return exactly 3 unique distractors
-        List<String> unique = new ArrayList<>();
-        for (String d : distractors) {
-            if (!d.equalsIgnoreCase(correctAnswer) && unique.size() < 3) {
-                if (!unique.contains(d)) {
-                    unique.add(d);
-                }
-            }
-        }
-        
-        // Final safety check
-        if (unique.size() < 3) {
-            for (int i = unique.size(); i < 3; i++) {
-                unique.add("Wrong option " + (i + 1));
+                sources.add(files[i].getName());
             }
-        }
-        
-        return unique;
-        
-        } catch (Exception e) {
-            System.out.println("Error in generateDistractors: " + e.getMessage());
-            e.printStackTrace();
-            // Return default distractors on error
-            List<String> fallback = new ArrayList<>();
-            fallback.add("Option A");
-            fallback.add("Option B");
-            fallback.add("Option C");
-            return fallback;
-        }
-    }
 
-    private Question generateTrueFalse(String sentence) {
-        try {
-            if (sentence == null || sentence.trim().isEmpty()) {
-                return null;
-            }
-            String questionText = "True or False: " + sentence + ".";
-            String[] options = new String[]{"True", "False"};
-            int correctIndex = 0;
-            return new Question(1, questionText, options, correctIndex, null);
-        } catch (Exception e) {
-            System.out.println("Error in generateTrueFalse: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+            QuestionBank.write(out, sources, questions, sourceIds);
+            System.out.println("Compiled " + questions.size() + " questions from " + sources.size() +
+                    " file(s) into " + out + " in " + (System.currentTimeMillis() - startTime) + " ms (" +
+                    duplicates + " near-duplicates dropped)");
+            return questions.size();
+        } finally {
+            pool.shutdown();
         }
     }
 
-    private Question generateFillBlank(String sentence) {
+    private static void runBankCompiler(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java IntelligentQuizApp --compile-bank <dir-of-txt> <out.qbank> " +
+                    "[questionsPerFile] [seed]");
+            System.exit(2);
+        }
         try {
-            if (sentence == null || sentence.trim().isEmpty()) {
-                return null;
-            }
-            
-            String[] words = sentence.split("\\s+");
-            if (words.length == 0) {
-                return null;
+            File dir = new File(args[1]);
+            File out = new File(args[2]);
+            int perFile = args.length > 3 ? Integer.parseInt(args[3]) : BANK_DEFAULT_QUESTIONS_PER_FILE;
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : DEMO_SEED;
+            if (!dir.isDirectory()) {
+                System.out.println("Not a directory: " + dir);
+                System.exit(2);
             }
-            
-            int idx = -1;
-            int maxLen = 0;
-            for (int i = 0; i < words.length; i++) {
-                String w = words[i].replaceAll("[^a-zA-Z0-9]", "");
-                if (w.length() > maxLen && w.length() >= 5) {
-                    maxLen = w.length();
-                    idx = i;
-                }
-            }
-            if (idx == -1) return null;
-
-            String answer = words[idx].replaceAll("[^a-zA-Z0-9]", "");
-            words[idx] = "_____";
-            String questionText = "Fill in the blank:\n" + String.join(" ", words) + ".";
-            return new Question(2, questionText, null, -1, answer);
+            compileQuestionBank(dir, out, perFile, seed);
         } catch (Exception e) {
-            System.out.println("Error in generateFillBlank: " + e.getMessage());
             e.printStackTrace();
-            return null;
+            System.exit(1);
         }
     }
 
@@ -2038,67 +2349,253 @@ public class IntelligentQuizApp extends JFrame {
     }
 
     // ====== Results Management ======
+    // Queued for the results writer thread; nothing is written on the EDT
     private void appendResultToCSV(int score, int total, double accuracy) {
-        try {
-            boolean newFile = !(new File(RESULTS_FILE)).exists();
-            FileWriter fw = new FileWriter(RESULTS_FILE, true);
-            PrintWriter pw = new PrintWriter(fw);
-            if (newFile) {
-                pw.println("username,category,difficulty,score,total,accuracy_percent,timestamp");
+        String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        resultsWriter.submit(currentUser + "," + currentCategory + "," + currentDifficulty + "," +
+                score + "," + total + "," + String.format("%.2f", accuracy) + "," + ts);
+    }
+
+    // Opens or syncs the results log on a SwingWorker thread; the table model is installed in done()
+    private void loadResults() {
+        if (resultsLoading) {
+            return;
+        }
+        resultsLoading = true;
+        resultsCountLabel.setText("Loading results...");
+        File f = new File(RESULTS_FILE);
+        ResultsLog current = resultsLog;
+        new SwingWorker<ResultsLog, Void>() {
+            @Override
+            protected ResultsLog doInBackground() throws IOException {
+                resultsWriter.flush(); // include the quiz that just finished
+                if (!f.exists()) {
+                    return null;
+                }
+                // Imports only the rows added to the CSV since the last look
+                if (current == null) {
+                    return ResultsLog.open(f);
+                }
+                current.sync();
+                return current;
             }
-            String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-            pw.println(currentUser + "," + currentCategory + "," + currentDifficulty + "," +
-                    score + "," + total + "," + String.format("%.2f", accuracy) + "," + ts);
-            pw.flush();
-            pw.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            @Override
+            protected void done() {
+                resultsLoading = false;
+                try {
+                    ResultsLog log = get();
+                    if (log == null) {
+                        resultsCountLabel.setText("No results yet. Take a quiz and finish it to generate results.");
+                        return;
+                    }
+                    if (resultsLog == null) {
+                        resultsLog = log;
+                        resultsModel = new ResultsTableModel(log);
+                        resultsTable.setModel(resultsModel);
+                    }
+                    if (resultsModel.sortColumn() >= 0 && resultsModel.getRowCount() != resultsLog.size()) {
+                        runResultsSort(resultsModel.sortColumn(), resultsModel.isDescending());
+                    } else if (resultsModel.sortColumn() < 0) {
+                        resultsModel.refresh();
+                    }
+                    updateResultsHeader();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    cause.printStackTrace();
+                    resultsCountLabel.setText("Error reading results: " + cause.getMessage());
+                }
+                updateResultsSummary();
+            }
+        }.execute();
+    }
+
+    // Loads quiz_results.qstats and .qrank (or rebuilds them from the CSV) and keeps them updated from the writer.
+    // Both load on a background thread; the screens show neither until it is installed on the EDT.
+    // Rows written before a listener is added are picked up by its first appended().
+    private void openResultsStats() {
+        Thread opener = new Thread(() -> {
+            try {
+                ResultsAggregates stats = ResultsAggregates.open(new File(RESULTS_FILE));
+                resultsWriter.addListener(stats);
+                SwingUtilities.invokeLater(() -> {
+                    resultsStats = stats;
+                    updateDashboardStats();
+                    updateResultsSummary();
+                });
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                Leaderboard board = Leaderboard.open(new File(RESULTS_FILE));
+                resultsWriter.addListener(board);
+                SwingUtilities.invokeLater(() -> {
+                    leaderboard = board;
+                    fillLeaderboard();
+                });
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "results-stats-open");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    private void updateDashboardStats() {
+        ResultsAggregates.Stats s = resultsStats == null || currentUser == null ? null : resultsStats.user(currentUser);
+        if (s == null) {
+            dashboardStatsLabel.setText("No quizzes finished yet.");
+            return;
         }
+        dashboardStatsLabel.setText(String.format("Your stats: %d quiz%s · average %.1f%% (± %.1f) · best %.1f%% · last %d/%d",
+                s.count(), s.count() == 1 ? "" : "zes", s.mean(), s.stdDev(), s.best(), s.lastScore(), s.lastTotal()));
     }
 
-    private void loadResults() {
+    // Per-category and per-difficulty averages under the table; no scan of the results
+    private void updateResultsSummary() {
+        if (resultsStats == null) {
+            resultsSummaryLabel.setText(" ");
+            return;
+        }
+        resultsSummaryLabel.setText("<html>By category: " + describeStats(resultsStats.categories())
+                + "<br>By difficulty: " + describeStats(resultsStats.difficulties()) + "</html>");
+    }
+
+    private static String describeStats(Map<String, ResultsAggregates.Stats> groups) {
+        if (groups.isEmpty()) {
+            return "-";
+        }
         StringBuilder sb = new StringBuilder();
-        sb.append("═══════════════════════════════════════════════════════════════════════════\n");
-        sb.append("                           QUIZ RESULTS DASHBOARD\n");
-        sb.append("═══════════════════════════════════════════════════════════════════════════\n\n");
+        for (Map.Entry<String, ResultsAggregates.Stats> e : groups.entrySet()) {
+            ResultsAggregates.Stats s = e.getValue();
+            if (sb.length() > 0) sb.append(" · ");
+            sb.append(String.format("%s %.1f%% (%d)", e.getKey(), s.mean(), s.count()));
+        }
+        return sb.toString();
+    }
 
-        File f = new File(RESULTS_FILE);
-        if (!f.exists()) {
-            sb.append("No results yet. Take a quiz and finish it to generate results.\n");
-            resultsTextArea.setText(sb.toString());
+    // ====== Leaderboard ======
+    // Opens on the board of the last quiz (or keeps the current selection).
+    // Flushing the writer and catching up run on a SwingWorker thread; the card is shown in done().
+    private void showLeaderboard() {
+        if (leaderboardLoading) {
             return;
         }
-
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(f));
-            String line;
-            boolean isHeader = true;
-
-            while ((line = br.readLine()) != null) {
-                if (isHeader) {
-                    sb.append(String.format("%-15s %-12s %-12s %-10s %-8s %-12s %s\n",
-                            "USERNAME", "CATEGORY", "DIFFICULTY", "SCORE", "TOTAL", "ACCURACY", "TIMESTAMP"));
-                    sb.append("───────────────────────────────────────────────────────────────────────────\n");
-                    isHeader = false;
-                    continue;
+        leaderboardLoading = true;
+        Leaderboard board = leaderboard;
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                resultsWriter.flush(); // include the quiz that just finished
+                if (board != null) {
+                    board.sync();
                 }
+                return null;
+            }
 
-                String[] parts = line.split(",");
-                if (parts.length >= 7) {
-                    sb.append(String.format("%-15s %-12s %-12s %-10s %-8s %-12s %s\n",
-                            parts[0], parts[1], parts[2], parts[3] + "/" + parts[4],
-                            parts[4], parts[5] + "%", parts[6]));
+            @Override
+            protected void done() {
+                leaderboardLoading = false;
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    cause.printStackTrace();
                 }
+                fillLeaderboard();
+                cardLayout.show(mainPanel, "leaderboard");
             }
-            br.close();
+        }.execute();
+    }
 
-            sb.append("\n═══════════════════════════════════════════════════════════════════════════\n");
-        } catch (IOException e) {
-            sb.append("Error reading results: ").append(e.getMessage());
+    private void fillLeaderboard() {
+        String category = currentCategory.isEmpty() ? (String) leaderboardCategoryCombo.getSelectedItem() : currentCategory;
+        String difficulty = currentDifficulty.isEmpty() ? (String) leaderboardDifficultyCombo.getSelectedItem() : currentDifficulty;
+        leaderboardFilling = true;
+        fillCombo(leaderboardCategoryCombo, leaderboard == null ? Collections.emptySet() : leaderboard.categories(), category);
+        fillCombo(leaderboardDifficultyCombo, leaderboard == null ? Collections.emptySet() : leaderboard.difficulties(), difficulty);
+        leaderboardFilling = false;
+        updateLeaderboard();
+    }
+
+    private static void fillCombo(JComboBox<String> combo, Set<String> items, String selected) {
+        combo.removeAllItems();
+        for (String item : items) {
+            combo.addItem(item);
+        }
+        if (selected != null) {
+            if (!items.contains(selected)) {
+                combo.addItem(selected);
+            }
+            combo.setSelectedItem(selected);
         }
+    }
+
+    // Reads the selected board's ranked entries; no results are scanned or sorted
+    private void updateLeaderboard() {
+        if (leaderboardFilling) {
+            return;
+        }
+        leaderboardModel.setRowCount(0);
+        String category = (String) leaderboardCategoryCombo.getSelectedItem();
+        String difficulty = (String) leaderboardDifficultyCombo.getSelectedItem();
+        if (leaderboard == null || category == null || difficulty == null) {
+            return;
+        }
+        boolean byAverage = leaderboardRankingCombo.getSelectedIndex() == 1;
+        int rank = 1;
+        for (Leaderboard.Entry e : leaderboard.top(category, difficulty, byAverage, LEADERBOARD_SIZE)) {
+            leaderboardModel.addRow(new Object[]{rank++, e.user(),
+                    String.format("%.2f%%", e.best()), String.format("%.2f%%", e.average()), e.count()});
+        }
+    }
+
+    // Header click: sort by that column, or flip the direction if it already is
+    private void sortResults(int column) {
+        if (resultsModel == null) {
+            return;
+        }
+        if (column == resultsModel.sortColumn() && resultsModel.getRowCount() == resultsLog.size()
+                && resultsModel.reverseOrder()) {
+            updateResultsHeader();
+            return;
+        }
+        runResultsSort(column, false);
+    }
 
-        resultsTextArea.setText(sb.toString());
-        resultsTextArea.setCaretPosition(0);
+    // Builds the permutation on a SwingWorker thread; the table keeps its old order meanwhile
+    private void runResultsSort(int column, boolean descending) {
+        if (resultsSorting) {
+            return;
+        }
+        resultsSorting = true;
+        resultsCountLabel.setText("Sorting " + resultsLog.size() + " results...");
+        new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return resultsModel.sortOrder(column, descending);
+            }
+
+            @Override
+            protected void done() {
+                resultsSorting = false;
+                try {
+                    resultsModel.setOrder(column, descending, get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    ex.printStackTrace();
+                }
+                updateResultsHeader();
+            }
+        }.execute();
+    }
+
+    private void updateResultsHeader() {
+        for (int i = 0; i < resultsTable.getColumnCount(); i++) {
+            int column = resultsTable.convertColumnIndexToModel(i);
+            resultsTable.getColumnModel().getColumn(i).setHeaderValue(resultsModel.getColumnName(column));
+        }
+        resultsTable.getTableHeader().repaint();
+        resultsCountLabel.setText(resultsModel.getRowCount() + " results - click a column header to sort");
     }
 
     // ====== PDF Export ======
@@ -2284,6 +2781,10 @@ public class IntelligentQuizApp extends JFrame {
 
     // ====== Main Method ======
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--compile-bank")) {
+            runBankCompiler(args);
+            return;
+        }
         SwingUtilities.invokeLater(() -> {
             new IntelligentQuizApp();
         });
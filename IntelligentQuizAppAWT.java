@@ -2,6 +2,11 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.IntConsumer;
 
 /**
  * Intelligent Quiz App - AWT Only, Single File
@@ -14,24 +19,9 @@ import java.util.*;
 public class IntelligentQuizAppAWT {
 
     // ====== Inner model classes ======
-    static class Question {
-        // type: 0 = MCQ, 1 = TRUE/FALSE, 2 = FILL_IN_BLANK
-        int type;
-        String text;
-        String[] options;   // for MCQ / True-False
-        int correctIndex;   // for MCQ / True-False, -1 for fill in
-        String correctText; // for FILL_IN_BLANK
-
-        Question(int type, String text, String[] options, int correctIndex, String correctText) {
-            this.type = type;
-            this.text = text;
-            this.options = options;
-            this.correctIndex = correctIndex;
-            this.correctText = correctText;
-        }
-    }
-
+    // (Question is a top-level class shared with the generator engine)
     static class ProgressBar extends Canvas {
+        private static final long serialVersionUID = 1L;
         int total = 1;
         int current = 0;
 
@@ -79,6 +69,28 @@ public class IntelligentQuizAppAWT {
     private TextField numQuestionsField;
     private TextArea contentArea;
     private Label setupMessageLabel;
+    private Button startButton;
+    private Button cancelGenerationButton;
+    private ProgressBar generationProgress;
+
+    // Background generation: one worker thread, results posted back with EventQueue.invokeLater
+    private final ExecutorService generationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "quiz-generation");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    private GenerationMonitor generationMonitor = null;
+
+    // Results dashboard: flushes the writer and reads the CSV off the event thread
+    private final ExecutorService resultsExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "results-reader");
+            t.setDaemon(true);
+            return t;
+        }
+    });
 
     // Quiz runtime
     private java.util.List<Question> currentQuestions = new ArrayList<>();
@@ -108,11 +120,14 @@ public class IntelligentQuizAppAWT {
 
     // Results storage
     private final String RESULTS_FILE = "quiz_results.csv";
+    private final ResultsWriter resultsWriter = ResultsWriter.install(new File(RESULTS_FILE),
+            "username,score,total,accuracy_percent,timestamp", 50, true);
 
     // Sample content for "intelligent" question generation
     private Map<String, String> sampleContent = new HashMap<>();
 
-    // Random for question generator
+    // Question generator engine and the source of per-run seeds
+    private final QuestionGenerator generator = QuestionGenerator.loadDefaults();
     private Random random = new Random();
 
     // ====== Constructor ======
@@ -325,15 +340,29 @@ public class IntelligentQuizAppAWT {
             }
         });
 
-        Button startButton = new Button("Generate & Start Quiz");
+        startButton = new Button("Generate & Start Quiz");
         startButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 startQuizFromSetup();
             }
         });
 
+        cancelGenerationButton = new Button("Cancel");
+        cancelGenerationButton.setEnabled(false);
+        cancelGenerationButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                cancelGeneration();
+            }
+        });
+
+        generationProgress = new ProgressBar();
+        generationProgress.setPreferredSize(new Dimension(220, 50));
+        generationProgress.setProgress(0, 100);
+
         bottom.add(backButton);
         bottom.add(startButton);
+        bottom.add(cancelGenerationButton);
+        bottom.add(generationProgress);
         quizSetupPanel.add(bottom, BorderLayout.NORTH);
 
         frame.add(quizSetupPanel, "setup");
@@ -537,7 +566,68 @@ public class IntelligentQuizAppAWT {
             }
         }
 
-        currentQuestions = generateQuestions(content, numQ, category, difficulty);
+        if (generationMonitor != null) {
+            return; // already generating
+        }
+        final GenerationMonitor monitor = new GenerationMonitor(new IntConsumer() {
+            public void accept(final int percent) {
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        generationProgress.setProgress(percent, 100);
+                    }
+                });
+            }
+        });
+        generationMonitor = monitor;
+        setGenerating(true);
+
+        final String text = content;
+        final int count = numQ;
+        final int limit = minutes;
+        generationExecutor.execute(new Runnable() {
+            public void run() {
+                java.util.List<Question> generated = null;
+                try {
+                    generated = generateQuestions(text, count, category, monitor);
+                } catch (CancellationException ex) {
+                    // leave generated null
+                }
+                final java.util.List<Question> result = generated;
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        finishGeneration(monitor, result, limit);
+                    }
+                });
+            }
+        });
+    }
+
+    private void cancelGeneration() {
+        if (generationMonitor != null) {
+            generationMonitor.cancel();
+            setupMessageLabel.setText("Cancelling question generation...");
+        }
+    }
+
+    private void setGenerating(boolean generating) {
+        startButton.setEnabled(!generating);
+        cancelGenerationButton.setEnabled(generating);
+        generationProgress.setProgress(0, 100);
+        if (generating) {
+            setupMessageLabel.setText("Generating questions...");
+        }
+    }
+
+    // Runs on the event thread once the background job has finished
+    private void finishGeneration(GenerationMonitor monitor, java.util.List<Question> generated, int minutes) {
+        generationMonitor = null;
+        setGenerating(false);
+        if (monitor.isCancelled() || generated == null) {
+            setupMessageLabel.setText("Question generation cancelled.");
+            return;
+        }
+
+        currentQuestions = generated;
         if (currentQuestions.isEmpty()) {
             setupMessageLabel.setText("Could not generate questions from content. Try adding more sentences.");
             return;
@@ -556,96 +646,12 @@ public class IntelligentQuizAppAWT {
         cardLayout.show(frame, "quiz");
     }
 
-    // ====== Question Generation Logic (Simulated "Intelligent") ======
-    private java.util.List<Question> generateQuestions(String content, int maxQuestions,
-                                                       String category, String difficulty) {
-        java.util.List<Question> questions = new ArrayList<>();
-
-        // Split into sentences
-        String[] sentences = content.split("[\\.\\?!]");
-        java.util.List<String> cleaned = new ArrayList<>();
-        for (String s : sentences) {
-            String t = s.trim();
-            if (t.split("\\s+").length >= 4) {
-                cleaned.add(t);
-            }
-        }
-
-        if (cleaned.isEmpty()) return questions;
-
-        // We'll generate 3 types: MCQ, True/False, Fill in Blank
-        int idx = 0;
-        while (questions.size() < maxQuestions && !cleaned.isEmpty()) {
-            String sentence = cleaned.get(idx % cleaned.size());
-            int type = questions.size() % 3; // rotate types
-
-            if (type == 0) {
-                // MCQ: Use sentence part before " is " as question subject
-                questions.add(generateMCQ(sentence));
-            } else if (type == 1) {
-                // True/False: Simple statement -> True
-                questions.add(generateTrueFalse(sentence));
-            } else {
-                // Fill in the blank
-                Question q = generateFillBlank(sentence);
-                if (q != null) {
-                    questions.add(q);
-                } else {
-                    // fall back to True/False
-                    questions.add(generateTrueFalse(sentence));
-                }
-            }
-            idx++;
-        }
-
-        // Shuffle
-        Collections.shuffle(questions, random);
-        if (questions.size() > maxQuestions) {
-            questions = questions.subList(0, maxQuestions);
-        }
-        return questions;
-    }
-
-    private Question generateMCQ(String sentence) {
-        String questionText = "What is the correct completion of this statement?\n" + sentence + ".";
-        // Very simple MCQ: 1 correct + 3 distractors from category-related words
-        String correct = "Correct";
-        String[] distractors = new String[]{"Incorrect A", "Incorrect B", "Incorrect C"};
-
-        // Shuffle answers
-        java.util.List<String> opts = new ArrayList<>();
-        opts.add(correct);
-        opts.addAll(Arrays.asList(distractors));
-        Collections.shuffle(opts, random);
-        int correctIndex = opts.indexOf(correct);
-
-        return new Question(0, questionText, opts.toArray(new String[0]), correctIndex, null);
-    }
-
-    private Question generateTrueFalse(String sentence) {
-        String questionText = "True or False: " + sentence + ".";
-        String[] options = new String[]{"True", "False"};
-        int correctIndex = 0; // Assume statement is true
-        return new Question(1, questionText, options, correctIndex, null);
-    }
-
-    private Question generateFillBlank(String sentence) {
-        String[] words = sentence.split("\\s+");
-        int idx = -1;
-        int maxLen = 0;
-        for (int i = 0; i < words.length; i++) {
-            String w = words[i].replaceAll("[^a-zA-Z0-9]", "");
-            if (w.length() > maxLen && w.length() >= 5) {
-                maxLen = w.length();
-                idx = i;
-            }
-        }
-        if (idx == -1) return null;
-
-        String answer = words[idx].replaceAll("[^a-zA-Z0-9]", "");
-        words[idx] = "_____";
-        String questionText = "Fill in the blank:\n" + String.join(" ", words) + ".";
-        return new Question(2, questionText, null, -1, answer);
+    // ====== Question Generation Logic ======
+    // Same engine as the Swing app; each run gets a fresh seed
+    private java.util.List<Question> generateQuestions(String content, int maxQuestions, String category,
+                                                       GenerationMonitor monitor) {
+        return generator.generateQuestions(content, maxQuestions, random.nextLong(),
+                "Custom".equals(category), monitor);
     }
 
     // ====== Timer Logic ======
@@ -772,7 +778,7 @@ public class IntelligentQuizAppAWT {
             String ans = fillAnswerField.getText().trim();
             if (ans.isEmpty()) return false;
 
-            if (ans.equalsIgnoreCase(q.correctText)) {
+            if (FuzzyMatcher.matches(ans, q.correctText, FuzzyMatcher.DEFAULT_MAX_EDITS)) {
                 correctCount++;
                 feedbackLabel.setText("Correct!");
             } else {
@@ -798,31 +804,34 @@ public class IntelligentQuizAppAWT {
 
     // ====== Results / CSV ======
     private void appendResultToCSV(int score, int total, double accuracy) {
-        try {
-            boolean newFile = !(new File(RESULTS_FILE)).exists();
-            FileWriter fw = new FileWriter(RESULTS_FILE, true);
-            PrintWriter pw = new PrintWriter(fw);
-            if (newFile) {
-                pw.println("username,score,total,accuracy_percent,timestamp");
-            }
-            String ts = new Date().toString();
-            pw.println(currentUser + "," + score + "," + total + "," +
-                    String.format("%.1f", accuracy) + "," + ts);
-            pw.flush();
-            pw.close();
-        } catch (IOException e) {
-            // ignore errors in demo
-        }
+        String ts = new Date().toString();
+        resultsWriter.submit(currentUser + "," + score + "," + total + "," +
+                String.format("%.1f", accuracy) + "," + ts);
     }
 
     private void loadResults() {
+        resultsArea.setText("Loading results...");
+        resultsExecutor.execute(new Runnable() {
+            public void run() {
+                final String text = readResults();
+                EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        resultsArea.setText(text);
+                    }
+                });
+            }
+        });
+    }
+
+    // Runs on the results thread; waits for pending results, then reads the whole CSV
+    private String readResults() {
         StringBuilder sb = new StringBuilder();
         sb.append("Results (from ").append(RESULTS_FILE).append(")\n\n");
+        resultsWriter.flush();
         File f = new File(RESULTS_FILE);
         if (!f.exists()) {
             sb.append("No results yet. Take a quiz and finish it to generate results.\n");
-            resultsArea.setText(sb.toString());
-            return;
+            return sb.toString();
         }
         try {
             BufferedReader br = new BufferedReader(new FileReader(f));
@@ -834,7 +843,7 @@ public class IntelligentQuizAppAWT {
         } catch (IOException e) {
             sb.append("Error reading results: ").append(e.getMessage());
         }
-        resultsArea.setText(sb.toString());
+        return sb.toString();
     }
 
     // ====== Main ======
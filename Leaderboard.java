@@ -0,0 +1,538 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Top users per category and difficulty, by best or by average accuracy,
+ * kept current as results are appended to quiz_results.csv.
+ *
+ * Every (category, difficulty) board holds each user's count, accuracy sum
+ * and best accuracy, plus two bounded min-heaps of CAPACITY users - one per
+ * ranking - with the weakest entry at the root. A new result touches one
+ * user: if that user is in a heap it is sifted to its new place, otherwise
+ * it replaces the root when it now ranks above it. That is O(log CAPACITY)
+ * per result and reading a board sorts CAPACITY entries, never the history.
+ * Best accuracy only grows, so its heap is always exact. An average can
+ * drop; when a ranked user's does on a full heap, an outsider may now
+ * belong, and that board's average heap is refilled from its users (one
+ * pass, no sort) the next time it is read or saved.
+ *
+ * The boards are saved to <name>.qrank next to the CSV - every SAVE_EVERY
+ * results and when the writer closes - as a small snapshot section (the
+ * sorted heaps) followed by the per-user section. open() reads only the
+ * snapshot, so the leaderboard after a restart needs neither a scan of the
+ * CSV nor the users; those are loaded the first time a result has to be
+ * applied. As with ResultsAggregates, CSV rows past the saved offset are
+ * folded in on open, and a missing or unreadable file is rebuilt from the
+ * CSV in one streaming pass.
+ */
+public class Leaderboard implements ResultsWriter.Listener {
+
+    static final int CAPACITY = 20;
+    static final int SAVE_EVERY = 1000;
+    private static final int MAGIC = 0x514C4244; // "QLBD"
+    private static final int VERSION = 1;
+
+    /** One ranked user of a board. */
+    public static class Entry {
+        final String user;
+        final long count;
+        final double best;
+        final double average;
+
+        Entry(String user, long count, double best, double average) {
+            this.user = user;
+            this.count = count;
+            this.best = best;
+            this.average = average;
+        }
+
+        public String user() {
+            return user;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double best() {
+            return best;
+        }
+
+        public double average() {
+            return average;
+        }
+    }
+
+    // One user's results on one board; *Pos are the user's heap slots, -1 if not ranked
+    private static final class Member {
+        final String user;
+        long count;
+        double sum;
+        double best;
+        int bestPos = -1;
+        int averagePos = -1;
+
+        Member(String user) {
+            this.user = user;
+        }
+
+        double average() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        Entry entry() {
+            return new Entry(user, count, best, average());
+        }
+    }
+
+    // Bounded min-heap of the CAPACITY best members by one ranking
+    private static final class TopHeap {
+        final boolean byAverage;
+        final Member[] heap = new Member[CAPACITY];
+        int size = 0;
+        // A ranked member's average dropped on a full heap; refill before reading
+        boolean stale = false;
+
+        TopHeap(boolean byAverage) {
+            this.byAverage = byAverage;
+        }
+
+        double value(Member m) {
+            return byAverage ? m.average() : m.best;
+        }
+
+        // True if a ranks below b: lower value, then fewer quizzes, then later name
+        boolean below(Member a, Member b) {
+            double va = value(a), vb = value(b);
+            if (va != vb) return va < vb;
+            if (a.count != b.count) return a.count < b.count;
+            return a.user.compareTo(b.user) > 0;
+        }
+
+        int pos(Member m) {
+            return byAverage ? m.averagePos : m.bestPos;
+        }
+
+        void place(int i, Member m) {
+            heap[i] = m;
+            if (byAverage) m.averagePos = i;
+            else m.bestPos = i;
+        }
+
+        void evict(Member m) {
+            if (byAverage) m.averagePos = -1;
+            else m.bestPos = -1;
+        }
+
+        /** m is new or its values changed. */
+        void update(Member m) {
+            int p = pos(m);
+            if (p >= 0) {
+                if (!siftUp(p)) siftDown(p);
+            } else if (size < heap.length) {
+                place(size, m);
+                siftUp(size++);
+            } else if (below(heap[0], m)) {
+                evict(heap[0]);
+                place(0, m);
+                siftDown(0);
+            }
+        }
+
+        private boolean siftUp(int i) {
+            boolean moved = false;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!below(heap[i], heap[parent])) break;
+                swap(i, parent);
+                i = parent;
+                moved = true;
+            }
+            return moved;
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && below(heap[child + 1], heap[child])) child++;
+                if (!below(heap[child], heap[i])) break;
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            Member m = heap[i];
+            place(i, heap[j]);
+            place(j, m);
+        }
+
+        void refill(Collection<Member> members) {
+            for (int i = 0; i < size; i++) {
+                evict(heap[i]);
+                heap[i] = null;
+            }
+            size = 0;
+            for (Member m : members) {
+                update(m);
+            }
+            stale = false;
+        }
+
+        /** Ranked members, best first. */
+        List<Entry> entries() {
+            Member[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted, (a, b) -> below(a, b) ? 1 : below(b, a) ? -1 : 0);
+            List<Entry> out = new ArrayList<>(size);
+            for (Member m : sorted) {
+                out.add(m.entry());
+            }
+            return out;
+        }
+    }
+
+    // One (category, difficulty) board
+    private static final class Board {
+        final String category;
+        final String difficulty;
+        final Map<String, Member> members = new HashMap<>();
+        final TopHeap best = new TopHeap(false);
+        final TopHeap average = new TopHeap(true);
+        // From the snapshot section; used until the members are loaded
+        List<Entry> savedBest = Collections.emptyList();
+        List<Entry> savedAverage = Collections.emptyList();
+
+        Board(String category, String difficulty) {
+            this.category = category;
+            this.difficulty = difficulty;
+        }
+
+        TopHeap heap(boolean byAverage) {
+            TopHeap h = byAverage ? average : best;
+            if (h.stale) {
+                h.refill(members.values());
+            }
+            return h;
+        }
+    }
+
+    private final File csv;
+    private final File file;
+    private final Map<String, Board> boards = new TreeMap<>();
+    private long csvOffset = 0;
+    private boolean membersLoaded = false;
+    private int unsaved = 0;
+
+    private Leaderboard(File csv) {
+        this.csv = csv;
+        String base = csv.getPath().endsWith(".csv")
+                ? csv.getPath().substring(0, csv.getPath().length() - 4) : csv.getPath();
+        this.file = new File(base + ".qrank");
+    }
+
+    /** Reads the saved boards for csv and folds in the rows added since. */
+    public static Leaderboard open(File csv) throws IOException {
+        Leaderboard leaderboard = new Leaderboard(csv);
+        if (!leaderboard.loadSnapshot()) {
+            leaderboard.clear();
+        }
+        leaderboard.catchUp();
+        return leaderboard;
+    }
+
+    /** Folds in CSV rows the writer did not report (the AWT variant's); one length check when there are none. */
+    public synchronized void sync() throws IOException {
+        catchUp();
+    }
+
+    /** Recomputes every board from the CSV in one streaming pass. */
+    public synchronized void rebuild() throws IOException {
+        clear();
+        catchUp();
+    }
+
+    private void catchUp() throws IOException {
+        if (!csv.exists()) {
+            return;
+        }
+        if (csv.length() < csvOffset) {
+            clear(); // the CSV was truncated or replaced
+        }
+        if (!membersLoaded && csv.length() > csvOffset && completeLineAfter(csvOffset)) {
+            // Before the pass, never inside it: an unreadable per-user section means starting over from offset 0
+            if (!readMembers()) {
+                clear();
+            }
+        }
+        // Without the members (only a line still being written follows) there is nothing to fold
+        if (membersLoaded && csv.length() > csvOffset) {
+            long end = ResultRecord.readFrom(csv, csvOffset, this::fold);
+            if (end != csvOffset) {
+                csvOffset = end;
+                save();
+            }
+        }
+    }
+
+    // True if a complete line follows offset in the CSV, not just one still being written
+    private boolean completeLineAfter(long offset) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(csv))) {
+            skipFully(in, offset);
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                if (b == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // skip() until n bytes are gone; EOFException if the stream ends first
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private void clear() {
+        boards.clear();
+        csvOffset = 0;
+        membersLoaded = true;
+    }
+
+    // ====== Updates ======
+
+    /** Called by the results writer after record's line, [lineStart, csvEnd) of the CSV, is on disk. */
+    @Override
+    public synchronized void appended(ResultRecord record, long lineStart, long csvEnd) {
+        try {
+            loadMembers();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (csvEnd <= csvOffset) {
+            return; // already folded in by catchUp()
+        }
+        if (lineStart > csvOffset) {
+            // Rows written by someone else since csvOffset; the pass includes record
+            try {
+                catchUp();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        fold(record);
+        csvOffset = csvEnd;
+        if (++unsaved >= SAVE_EVERY) {
+            saveQuietly();
+        }
+    }
+
+    private void fold(ResultRecord r) {
+        Board board = board(r.category, r.difficulty);
+        Member m = board.members.get(r.user);
+        if (m == null) {
+            m = new Member(r.user);
+            board.members.put(r.user, m);
+        }
+        double before = m.average();
+        double accuracy = r.accuracy();
+        m.best = m.count == 0 ? accuracy : Math.max(m.best, accuracy);
+        m.count++;
+        m.sum += accuracy;
+        board.best.update(m);
+        board.average.update(m);
+        if (m.count > 1 && m.averagePos >= 0 && m.average() < before && board.average.size == CAPACITY) {
+            board.average.stale = true;
+        }
+    }
+
+    private Board board(String category, String difficulty) {
+        String key = category + '\n' + difficulty;
+        Board b = boards.get(key);
+        if (b == null) {
+            b = new Board(category, difficulty);
+            boards.put(key, b);
+        }
+        return b;
+    }
+
+    // ====== Queries ======
+
+    /** The top n (at most CAPACITY) users of a board, best first; empty for an unknown board. */
+    public synchronized List<Entry> top(String category, String difficulty, boolean byAverage, int n) {
+        Board b = boards.get(category + '\n' + difficulty);
+        if (b == null) {
+            return Collections.emptyList();
+        }
+        List<Entry> all = membersLoaded ? b.heap(byAverage).entries()
+                : (byAverage ? b.savedAverage : b.savedBest);
+        return new ArrayList<>(all.subList(0, Math.min(n, all.size())));
+    }
+
+    public synchronized Set<String> categories() {
+        Set<String> out = new TreeSet<>();
+        for (Board b : boards.values()) {
+            out.add(b.category);
+        }
+        return out;
+    }
+
+    public synchronized Set<String> difficulties() {
+        Set<String> out = new TreeSet<>();
+        for (Board b : boards.values()) {
+            out.add(b.difficulty);
+        }
+        return out;
+    }
+
+    // ====== Persistence ======
+
+    // Header, boards and their ranked entries; the members follow (see loadMembers)
+    private boolean loadSnapshot() {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            csvOffset = in.readLong();
+            in.readInt(); // snapshot length
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                Board b = board(in.readUTF(), in.readUTF());
+                b.savedBest = readEntries(in);
+                b.savedAverage = readEntries(in);
+            }
+            membersLoaded = false;
+            return true;
+        } catch (IOException e) {
+            System.out.println("Rebuilding leaderboard: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<Entry> readEntries(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<Entry> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new Entry(in.readUTF(), in.readLong(), in.readDouble(), in.readDouble()));
+        }
+        return out;
+    }
+
+    // Loads the per-user section once; rebuilds everything from the CSV if it is unreadable
+    private void loadMembers() throws IOException {
+        if (!membersLoaded && !readMembers()) {
+            rebuild();
+        }
+    }
+
+    // The per-user section into the boards; false (boards to be cleared) if it is unreadable
+    private boolean readMembers() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            skipFully(in, 16);
+            skipFully(in, in.readInt());
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                Board b = board(in.readUTF(), in.readUTF());
+                int members = in.readInt();
+                for (int j = 0; j < members; j++) {
+                    Member m = new Member(in.readUTF());
+                    m.count = in.readLong();
+                    m.sum = in.readDouble();
+                    m.best = in.readDouble();
+                    b.members.put(m.user, m);
+                    b.best.update(m);
+                    b.average.update(m);
+                }
+                b.savedBest = b.savedAverage = Collections.emptyList();
+            }
+            membersLoaded = true;
+            return true;
+        } catch (IOException e) {
+            System.out.println("Rebuilding leaderboard: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Writes the boards atomically; also done every SAVE_EVERY results and when the writer closes. */
+    public synchronized void save() throws IOException {
+        loadMembers();
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream s = new DataOutputStream(snapshot);
+        s.writeInt(boards.size());
+        for (Board b : boards.values()) {
+            s.writeUTF(b.category);
+            s.writeUTF(b.difficulty);
+            writeEntries(s, b.heap(false).entries());
+            writeEntries(s, b.heap(true).entries());
+        }
+        s.flush();
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvOffset);
+            out.writeInt(snapshot.size());
+            snapshot.writeTo(out);
+            out.writeInt(boards.size());
+            for (Board b : boards.values()) {
+                out.writeUTF(b.category);
+                out.writeUTF(b.difficulty);
+                out.writeInt(b.members.size());
+                for (Member m : b.members.values()) {
+                    out.writeUTF(m.user);
+                    out.writeLong(m.count);
+                    out.writeDouble(m.sum);
+                    out.writeDouble(m.best);
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unsaved = 0;
+    }
+
+    private static void writeEntries(DataOutputStream out, List<Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (Entry e : entries) {
+            out.writeUTF(e.user);
+            out.writeLong(e.count);
+            out.writeDouble(e.best);
+            out.writeDouble(e.average);
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized void writerClosed() {
+        if (unsaved > 0) {
+            saveQuietly();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * Rejects questions that say nearly the same thing as one already accepted.
+ *
+ * Each question is reduced to its content words (stopwords and the fixed
+ * wording the generators wrap around every sentence are skipped), and the
+ * word set is summarised by a 16-value MinHash signature. The signature is
+ * split into 4 bands of 4 values; two questions become candidates when any
+ * band matches exactly, and a candidate counts as a duplicate when at least
+ * MIN_MATCHING_HASHES of the 16 values agree (estimated Jaccard similarity
+ * of about 0.7). A question made from the same sentence as an earlier one -
+ * the MCQ, True/False and fill-in-the-blank variants - lands well above that.
+ *
+ * Band buckets live in LongIntHashMaps chained through int arrays, so a
+ * lookup only inspects questions that share a band and costs the same for
+ * a 5-question quiz or a bank of millions. Not thread-safe: callers feed it
+ * from one thread, in a fixed order, so results stay deterministic.
+ */
+public class NearDuplicateFilter {
+
+    static final int NUM_HASHES = 16;
+    private static final int BANDS = 4;
+    private static final int ROWS = NUM_HASHES / BANDS;
+    static final int MIN_MATCHING_HASHES = 11;
+    private static final int MIN_WORD_LENGTH = 3;
+
+    // Wording added by the generators around the source sentence
+    private static final String[] TEMPLATE_WORDS = {
+        "according", "content", "what", "word", "term", "best", "fits", "place", "true", "false",
+        "fill", "blank", "which", "statement", "correct", "following"
+    };
+
+    private static final long[] HASH_MULTIPLIERS = new long[NUM_HASHES];
+    static {
+        long z = 0x5DEECE66DL;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            z += 0x9E3779B97F4A7C15L;
+            long x = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+            HASH_MULTIPLIERS[i] = (x ^ (x >>> 31)) | 1L;
+        }
+    }
+
+    private final StopwordSet stopwords;
+    private final StopwordSet templateWords = new StopwordSet();
+    private final Tokenizer tokens = new Tokenizer();
+    private final int[] signature = new int[NUM_HASHES];
+
+    // Entry e: signatures[e * NUM_HASHES ...], next[band][e] = next entry in that bucket (-1 = end)
+    private int[] signatures = new int[64 * NUM_HASHES];
+    private final int[][] next = new int[BANDS][64];
+    private final LongIntHashMap[] bucketHeads = new LongIntHashMap[BANDS];
+    private int size = 0;
+
+    public NearDuplicateFilter(StopwordSet stopwords) {
+        this.stopwords = stopwords;
+        for (String w : TEMPLATE_WORDS) {
+            templateWords.add(w);
+        }
+        for (int b = 0; b < BANDS; b++) {
+            bucketHeads[b] = new LongIntHashMap(64);
+        }
+    }
+
+    /** Adds the question unless it nearly duplicates one already added; returns true when added. */
+    public boolean add(Question q) {
+        return add(q.text);
+    }
+
+    public boolean add(CharSequence text) {
+        if (!computeSignature(text)) {
+            return true; // nothing to compare on, e.g. a question made only of stopwords
+        }
+        long[] bandKeys = new long[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            bandKeys[b] = bandKey(b);
+            for (int e = bucketHeads[b].get(bandKeys[b], -1); e >= 0; e = next[b][e]) {
+                if (matchingHashes(e) >= MIN_MATCHING_HASHES) {
+                    return false;
+                }
+            }
+        }
+        insert(bandKeys);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Fills signature from the content words of text; false when there are none
+    private boolean computeSignature(CharSequence text) {
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        boolean any = false;
+        int n = tokens.tokenize(text);
+        for (int t = 0; t < n; t++) {
+            int start = tokens.start(t), end = tokens.end(t);
+            if (tokens.cleanLength(t) < MIN_WORD_LENGTH
+                    || stopwords.contains(text, start, end) || templateWords.contains(text, start, end)) {
+                continue;
+            }
+            long word = CorpusStats.termKey(text, start, end);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long h = word * HASH_MULTIPLIERS[i];
+                int v = (int) ((h ^ (h >>> 29)) >>> 32) & Integer.MAX_VALUE;
+                if (v < signature[i]) signature[i] = v;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private long bandKey(int band) {
+        long h = band;
+        for (int r = 0; r < ROWS; r++) {
+            h = (h * 0x100000001B3L) ^ signature[band * ROWS + r];
+        }
+        return h * 0x9E3779B97F4A7C15L;
+    }
+
+    private int matchingHashes(int entry) {
+        int base = entry * NUM_HASHES;
+        int matches = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (signatures[base + i] == signature[i]) matches++;
+        }
+        return matches;
+    }
+
+    private void insert(long[] bandKeys) {
+        int e = size++;
+        if ((e + 1) * NUM_HASHES > signatures.length) {
+            signatures = Arrays.copyOf(signatures, signatures.length * 2);
+        }
+        System.arraycopy(signature, 0, signatures, e * NUM_HASHES, NUM_HASHES);
+        for (int b = 0; b < BANDS; b++) {
+            if (e == next[b].length) {
+                next[b] = Arrays.copyOf(next[b], e * 2);
+            }
+            next[b][e] = bucketHeads[b].get(bandKeys[b], -1);
+            bucketHeads[b].put(bandKeys[b], e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * One quiz question, as produced by QuestionGenerator or entered by hand.
+ *
+ * type: 0 = MCQ, 1 = TRUE/FALSE, 2 = FILL_IN_BLANK. MCQ and True/False use
+ * options and correctIndex; fill-in-the-blank uses correctText. userAnswer
+ * and isCorrect are filled in while the quiz runs, so generated sets are
+ * copied before they are handed to a quiz (see QuestionSetCache).
+ */
+public class Question {
+    int type;
+    String text;
+    String[] options;
+    int correctIndex;
+    String correctText;
+    String userAnswer;
+    boolean isCorrect;
+
+    public Question(int type, String text, String[] options, int correctIndex, String correctText) {
+        this.type = type;
+        this.text = text;
+        this.options = options;
+        this.correctIndex = correctIndex;
+        this.correctText = correctText;
+        this.userAnswer = "";
+        this.isCorrect = false;
+    }
+}
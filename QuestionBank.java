@@ -0,0 +1,188 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * Compiled question bank: a single binary file produced offline by
+ * "java IntelligentQuizApp --compile-bank" and memory-mapped by the app.
+ *
+ * Layout (big-endian):
+ *   int  magic "QBNK", int version, int questionCount, int sourceCount
+ *   sourceCount x string           source file names
+ *   (questionCount + 1) x long     absolute record offsets (last = end of data)
+ *   questionCount x int            source index of each question
+ *   records                        QuestionSetCache question encoding
+ *
+ * Opening a bank only maps the file and checks the header; a question is
+ * decoded from the mapping the first time get() asks for it, so a bank with
+ * millions of questions opens instantly and sampling a quiz touches only the
+ * records it uses. Strings are length-prefixed UTF-8 (-1 = null), the same
+ * encoding as the question cache files.
+ */
+public class QuestionBank implements Closeable {
+
+    private static final int MAGIC = 0x51424E4B; // "QBNK"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int count;
+    private final String[] sources;
+    private final int offsetsPos;
+    private final int sourceIdsPos;
+
+    private QuestionBank(File file, FileChannel channel, MappedByteBuffer map) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.map = map;
+        if (map.getInt(0) != MAGIC) {
+            throw new IOException("Not a question bank: " + file);
+        }
+        if (map.getInt(4) != VERSION) {
+            throw new IOException("Unsupported question bank version " + map.getInt(4) + ": " + file);
+        }
+        count = map.getInt(8);
+        sources = new String[map.getInt(12)];
+        ByteBuffer header = map.duplicate();
+        header.position(16);
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = readString(header);
+        }
+        offsetsPos = header.position();
+        sourceIdsPos = offsetsPos + 8 * (count + 1);
+    }
+
+    public static QuestionBank open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Question bank larger than 2 GB: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new QuestionBank(file, channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public String source(int index) {
+        return sources[map.getInt(sourceIdsPos + 4 * index)];
+    }
+
+    /** Decodes question index from the mapping; every call returns a new Question. */
+    public Question get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Question " + index + " of " + count);
+        }
+        ByteBuffer record = map.duplicate();
+        record.position((int) map.getLong(offsetsPos + 8 * index));
+
+        int type = record.get();
+        String text = readString(record);
+        int optionCount = record.get();
+        String[] options = null;
+        if (optionCount >= 0) {
+            options = new String[optionCount];
+            for (int i = 0; i < optionCount; i++) {
+                options[i] = readString(record);
+            }
+        }
+        int correctIndex = record.get();
+        String correctText = readString(record);
+        return new Question(type, text, options, correctIndex, correctText);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ====== Writing ======
+
+    /**
+     * Writes a bank atomically (temp file + move). sourceIds[i] is the index in
+     * sources of the file question i was generated from.
+     */
+    public static void write(File out, List<String> sources, List<Question> questions,
+                             int[] sourceIds) throws IOException {
+        int n = questions.size();
+        long headerSize = 16;
+        for (String s : sources) {
+            headerSize += 4 + s.getBytes(StandardCharsets.UTF_8).length;
+        }
+        headerSize += 8L * (n + 1) + 4L * n;
+
+        File dir = out.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(out.getName(), ".tmp", dir);
+        long[] offsets = new long[n + 1];
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+            // Records first, after room for the header, so offsets are known when it is written
+            channel.position(headerSize);
+            DataOutputStream records = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            DataOutputStream recordOut = new DataOutputStream(record);
+            long pos = headerSize;
+            for (int i = 0; i < n; i++) {
+                record.reset();
+                QuestionSetCache.writeQuestion(recordOut, questions.get(i));
+                offsets[i] = pos;
+                pos += record.size();
+                record.writeTo(records);
+            }
+            offsets[n] = pos;
+            records.flush();
+            if (pos > Integer.MAX_VALUE) {
+                throw new IOException("Question bank would exceed 2 GB; compile fewer questions per file");
+            }
+
+            channel.position(0);
+            DataOutputStream header = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(n);
+            header.writeInt(sources.size());
+            for (String s : sources) {
+                QuestionSetCache.writeString(header, s);
+            }
+            for (long offset : offsets) {
+                header.writeLong(offset);
+            }
+            for (int i = 0; i < n; i++) {
+                header.writeInt(sourceIds[i]);
+            }
+            header.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
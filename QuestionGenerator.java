@@ -0,0 +1,872 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Question generation engine, independent of any UI.
+ *
+ * A generator is configured once with its dictionaries and is immutable
+ * afterwards. Every call gets what it varies by - content, count, seed, MCQ
+ * preference, progress/cancel monitor - as explicit arguments, builds its
+ * own CorpusStats and uses per-candidate SplittableRandoms, so one instance can serve
+ * both UIs, the bank compiler, benchmarks or a server from many threads at
+ * once. Results depend only on the arguments.
+ */
+public class QuestionGenerator {
+
+    // Default file locations, relative to the working directory
+    public static final String DISTRACTORS_FILE = "distractors.txt";
+    public static final String OPPOSITES_FILE = "opposites.txt";
+    public static final String STOPWORDS_DIR = "stopwords";
+
+    /** Marks the end of a streamQuestions() run in its queue. */
+    public static final Question END_OF_STREAM = new Question(-1, "", null, -1, null);
+
+    // Generic but contextually wrong MCQ options
+    private static final String[] GENERIC_WRONG_ANSWERS = {
+        "None of the above",
+        "All options are correct",
+        "Cannot be determined",
+        "Depends on context",
+        "Not applicable",
+        "Undefined behavior",
+        "Random value",
+        "System default"
+    };
+    // Candidate batches this large are split over the ForkJoinPool (see generateFromSample)
+    private static final int PARALLEL_GENERATION_THRESHOLD = 64;
+    private static final int GENERATION_LEAF_SIZE = 16;
+    // Candidate sentences kept per requested question, leaving room for failed or duplicate ones
+    private static final int SENTENCES_PER_QUESTION = 2;
+    // Progress: one unit per character (or byte) of a corpus pass, this many per question made
+    private static final long QUESTION_WORK = 1000;
+    // Large files in streaming mode: term statistics come from this many leading sentences
+    private static final int STREAM_STATS_SENTENCES = 2000;
+    // Tokenizer reuses its offset arrays, so each generation thread gets its own
+    private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+
+    private final DistractorDictionary domainTerms;
+    private final DistractorDictionary opposites;
+    private final StopwordSet stopwords;
+    // Identifies the dictionary files this generator was loaded from (see dictionaryFingerprint)
+    private final String dictionaryFingerprint;
+
+    public QuestionGenerator(DistractorDictionary domainTerms, DistractorDictionary opposites,
+                             StopwordSet stopwords) {
+        this(domainTerms, opposites, stopwords, "built-in");
+    }
+
+    private QuestionGenerator(DistractorDictionary domainTerms, DistractorDictionary opposites,
+                              StopwordSet stopwords, String dictionaryFingerprint) {
+        this.domainTerms = domainTerms;
+        this.opposites = opposites;
+        this.stopwords = stopwords;
+        this.dictionaryFingerprint = dictionaryFingerprint;
+    }
+
+    /** Built-in dictionaries extended by the given files (missing files = built-ins only). */
+    public static QuestionGenerator load(File distractorsFile, File oppositesFile, File stopwordsDir) {
+        List<File> files = new ArrayList<>(Arrays.asList(distractorsFile, oppositesFile));
+        File[] lists = stopwordsDir == null ? null
+                : stopwordsDir.listFiles((d, name) -> name.toLowerCase().endsWith(".txt"));
+        if (lists != null) {
+            Arrays.sort(lists);
+            files.addAll(Arrays.asList(lists));
+        }
+        return new QuestionGenerator(DistractorDictionary.loadDomainTerms(distractorsFile),
+                DistractorDictionary.loadOpposites(oppositesFile), StopwordSet.load(stopwordsDir),
+                fingerprint(files));
+    }
+
+    // SHA-256 over the names and bytes of the files (a missing file counts as empty)
+    private static String fingerprint(List<File> files) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (File f : files) {
+                digest.update((f.getName() + "|").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                if (f.isFile()) {
+                    digest.update(Files.readAllBytes(f.toPath()));
+                }
+                digest.update((byte) 0);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return "unknown-" + System.nanoTime(); // never matches a cached set
+        }
+    }
+
+    /**
+     * Identity of the dictionaries this generator was loaded with: a digest
+     * of the distractor, opposite and stopword files, or "built-in". Caches
+     * of generated questions include it in their keys, so editing a
+     * vocabulary file invalidates the sets built with the old one.
+     */
+    public String dictionaryFingerprint() {
+        return dictionaryFingerprint;
+    }
+
+    /** load() with the default files in the working directory. */
+    public static QuestionGenerator loadDefaults() {
+        return load(new File(DISTRACTORS_FILE), new File(OPPOSITES_FILE), new File(STOPWORDS_DIR));
+    }
+
+    public StopwordSet stopwords() {
+        return stopwords;
+    }
+
+    /** A fresh duplicate filter using this generator's stopwords. */
+    public NearDuplicateFilter newDuplicateFilter() {
+        return new NearDuplicateFilter(stopwords);
+    }
+
+    // ====== Batch Generation ======
+    /**
+     * Generates up to maxQuestions questions from the content.
+     *
+     * Term statistics are counted over every sentence, but questions are only
+     * made from a uniform sample of SENTENCES_PER_QUESTION * maxQuestions
+     * sentences taken in the same pass, so ten questions from a textbook cover
+     * the whole book rather than its first page. See generateFromSample for
+     * how candidates are built.
+     *
+     * Progress covers the whole run: segmentation and counting each count one
+     * unit per character, then every question made counts QUESTION_WORK.
+     */
+    public List<Question> generateQuestions(String content, int maxQuestions, long seed, boolean forceMCQ,
+                                            GenerationMonitor monitor) {
+        List<Question> questions = new ArrayList<>();
+        
+        try {
+            if (content == null || content.trim().isEmpty()) {
+                System.out.println("Error: Content is empty");
+                return questions;
+            }
+
+            // One pass samples the sentences questions are made from and hands
+            // them to the term statistics, which are counted in parallel chunks
+            CorpusStats.Builder statsBuilder = new CorpusStats.Builder(stopwords);
+            SentenceReservoir sample = newSample(maxQuestions, seed);
+            CorpusStats stats;
+            long length = content.length();
+            monitor.start(2 * length + maxQuestions * QUESTION_WORK);
+            try {
+                List<String> all = SentenceSegmenter.split(content);
+                monitor.progress(length);
+                long counted = 0;
+                for (String t : all) {
+                    monitor.checkCancelled();
+                    if (Tokenizer.hasTokens(t, 4)) {
+                        statsBuilder.add(t);
+                        sample.offer(t);
+                    }
+                    counted += t.length() + 1;
+                    monitor.progress(length + Math.min(length, counted));
+                }
+                stats = statsBuilder.finish();
+            } finally {
+                statsBuilder.cancel(); // no-op once finished
+            }
+            monitor.progress(2 * length);
+
+            if (sample.seen() == 0) {
+                System.out.println("Error: No valid sentences found");
+                return questions;
+            }
+            
+            List<String> sentences = sample.toList();
+            System.out.println("Generating questions from " + sentences.size() + " of " + sample.seen() +
+                    " sentences...");
+            questions = generateFromSample(sentences, stats, maxQuestions, forceMCQ, seed, monitor, 2 * length);
+            
+            System.out.println("Total questions generated: " + questions.size());
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            System.out.println("Error in generateQuestions: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        shuffle(questions, new SplittableRandom(seed));
+        if (questions.size() > maxQuestions) {
+            questions = questions.subList(0, maxQuestions);
+        }
+        return questions;
+    }
+
+    // Reservoir for the sentences of one run; its random stream is kept apart from the candidates'
+    private static SentenceReservoir newSample(int maxQuestions, long seed) {
+        return new SentenceReservoir(maxQuestions * SENTENCES_PER_QUESTION,
+                new SplittableRandom(mixSeed(seed, -3)));
+    }
+
+    /**
+     * Builds up to maxQuestions questions from the sampled sentences.
+     *
+     * Candidate k is built from sentence k % n with its own SplittableRandom
+     * derived from the seed and k, so each candidate can be produced
+     * independently. Its question type is the number of questions accepted
+     * before it, mod 3 (always MCQ when forceMCQ is set), so rejected
+     * candidates don't skew the MCQ / true-false / fill-in mix. A batch is
+     * built assuming every candidate is accepted; when one is rejected, the
+     * later candidates of the batch whose type is then wrong are rebuilt on
+     * the calling thread. Each sentence is visited at most twice; candidates
+     * that fail or nearly repeat an accepted question are replaced from the
+     * next index range until the cap is reached. Large batches are split over
+     * the common ForkJoinPool; the result is the same for a given seed
+     * whether it runs on one thread or many. Progress is reported as
+     * progressBase + QUESTION_WORK per question accepted, so it never goes
+     * back, and ends at progressBase + QUESTION_WORK * maxQuestions.
+     */
+    private List<Question> generateFromSample(List<String> sentences, CorpusStats stats, int maxQuestions,
+                                              boolean forceMCQ, long seed, GenerationMonitor monitor,
+                                              long progressBase) {
+        List<Question> questions = new ArrayList<>();
+        NearDuplicateFilter filter = newDuplicateFilter();
+        int limit = sentences.size() * 2;
+        int next = 0;
+        while (questions.size() < maxQuestions && next < limit) {
+            int end = Math.min(limit, next + (maxQuestions - questions.size()));
+            Question[] batch = new Question[end - next];
+            int accepted = questions.size();
+            GenerationTask task = new GenerationTask(sentences, stats, forceMCQ, seed, monitor,
+                    batch, next, accepted, next, end);
+            if (batch.length >= PARALLEL_GENERATION_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(task);
+            } else {
+                task.compute();
+            }
+            monitor.checkCancelled();
+            for (int i = 0; i < batch.length; i++) {
+                Question q = batch[i];
+                int type = questionType(forceMCQ, questions.size());
+                if (type != questionType(forceMCQ, accepted + i)) {
+                    q = candidate(sentences, stats, forceMCQ, seed, next + i, type);
+                }
+                if (q != null && filter.add(q)) {
+                    questions.add(q);
+                }
+            }
+            monitor.progress(progressBase + questions.size() * QUESTION_WORK); // rejected candidates don't count
+            next = end;
+        }
+        monitor.progress(progressBase + maxQuestions * QUESTION_WORK);
+        return questions;
+    }
+
+    /**
+     * Fork-join task producing candidates [from, to) into out[k - base],
+     * candidate k typed as if accepted + (k - base) questions came before it.
+     * Every slot is written by exactly one leaf, so no merging or locking is
+     * needed and the output order is fixed by the candidate index.
+     */
+    private class GenerationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<String> sentences;
+        private final CorpusStats stats;
+        private final boolean forceMCQ;
+        private final long seed;
+        private final GenerationMonitor monitor;
+        private final Question[] out;
+        private final int base;
+        private final int accepted;
+        private final int from;
+        private final int to;
+
+        GenerationTask(List<String> sentences, CorpusStats stats, boolean forceMCQ, long seed,
+                       GenerationMonitor monitor, Question[] out, int base, int accepted, int from, int to) {
+            this.sentences = sentences;
+            this.stats = stats;
+            this.forceMCQ = forceMCQ;
+            this.seed = seed;
+            this.monitor = monitor;
+            this.out = out;
+            this.base = base;
+            this.accepted = accepted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GENERATION_LEAF_SIZE) {
+                for (int k = from; k < to; k++) {
+                    if (monitor.isCancelled()) {
+                        return;
+                    }
+                    out[k - base] = candidate(sentences, stats, forceMCQ, seed, k,
+                            questionType(forceMCQ, accepted + k - base));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new GenerationTask(sentences, stats, forceMCQ, seed, monitor, out, base, accepted, from, mid),
+                      new GenerationTask(sentences, stats, forceMCQ, seed, monitor, out, base, accepted, mid, to));
+        }
+    }
+
+    // Question type for the next question after `accepted` ones: MCQ, true/false, fill-in in turn
+    private static int questionType(boolean forceMCQ, int accepted) {
+        return forceMCQ ? 0 : accepted % 3;
+    }
+
+    // Candidate k of a sample, or null if its sentence gives no question of that type
+    private Question candidate(List<String> sentences, CorpusStats stats, boolean forceMCQ, long seed,
+                               int k, int type) {
+        try {
+            return generateQuestionOfType(sentences.get(k % sentences.size()), type,
+                    new SplittableRandom(mixSeed(seed, k)), stats);
+        } catch (Exception e) {
+            System.out.println("Error generating question from sentence: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // SplitMix64 finaliser: spreads (seed, index) into an independent per-candidate seed
+    static long mixSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Fisher-Yates shuffle driven by a SplittableRandom. Collections.shuffle
+     * only accepts java.util.Random, whose shared atomic seed is what the
+     * per-candidate generators are meant to avoid.
+     */
+    static <T> void shuffle(List<T> list, SplittableRandom rnd) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            T tmp = list.get(i);
+            list.set(i, list.get(j));
+            list.set(j, tmp);
+        }
+    }
+
+    /**
+     * Streaming variant of generateQuestions for files too large to hold in
+     * memory. A single chunked read builds the term statistics and the
+     * sentence sample together; questions are then made from the sample
+     * alone, so memory stays proportional to maxQuestions and the file is
+     * read only once.
+     */
+    public List<Question> generateQuestionsFromFile(File file, int maxQuestions, long seed,
+                                                    GenerationMonitor monitor) throws IOException {
+        // Progress: the read counts one unit per byte, generation QUESTION_WORK per question made
+        CorpusStats.Builder statsBuilder = new CorpusStats.Builder(stopwords);
+        SentenceReservoir sample = newSample(maxQuestions, seed);
+        long fileSize = file.length();
+        monitor.start(fileSize + maxQuestions * QUESTION_WORK);
+        CorpusStats stats;
+        try (SentenceReader reader = new SentenceReader(file)) {
+            String sentence;
+            while ((sentence = reader.nextSentence()) != null) {
+                monitor.checkCancelled();
+                if (Tokenizer.hasTokens(sentence, 4)) {
+                    statsBuilder.add(sentence);
+                    sample.offer(sentence);
+                }
+                monitor.progress(reader.position());
+            }
+            stats = statsBuilder.finish();
+        } finally {
+            statsBuilder.cancel();
+        }
+
+        // Uploaded content always prefers MCQs, same as generateQuestions
+        List<Question> questions = generateFromSample(sample.toList(), stats, maxQuestions, true, seed,
+                monitor, fileSize);
+
+        System.out.println("Total questions generated from " + file.getName() + ": " + questions.size());
+        shuffle(questions, new SplittableRandom(seed));
+        return questions;
+    }
+
+
+    // ====== Streaming Generation ======
+    /**
+     * Generates questions one at a time into queue, blocking while it is
+     * full, and finishes with END_OF_STREAM; runs on the calling thread until
+     * numQuestions are produced, the content runs out or the monitor is
+     * cancelled (then no end marker is sent).
+     *
+     * In-memory content is split and counted in full, then visited in a
+     * seed-shuffled sentence order (the set can't be shuffled afterwards). A
+     * file is read sentence by sentence: term statistics come from its first
+     * STREAM_STATS_SENTENCES sentences so generation starts without reading
+     * the whole file. Manual questions are merged in at random positions.
+     */
+    public void streamQuestions(String content, File file, int numQuestions, boolean forceMCQ, long seed,
+                                List<Question> manual, BlockingQueue<Question> queue, GenerationMonitor monitor) {
+        new QuestionProducer(content, file, numQuestions, forceMCQ, seed, manual, queue, monitor).run();
+    }
+
+    // State of one streamQuestions() run
+    private class QuestionProducer {
+        private final String content;
+        private final File file;
+        private final int numQuestions;
+        private final boolean forceMCQ;
+        private final long seed;
+        private final List<Question> manual;
+        private final SplittableRandom mergeRandom;
+        private final BlockingQueue<Question> queue;
+        private final GenerationMonitor monitor;
+        private final NearDuplicateFilter filter = newDuplicateFilter();
+        private int manualNext = 0;
+        private int generated = 0;
+        private int candidate = 0;
+
+        QuestionProducer(String content, File file, int numQuestions, boolean forceMCQ, long seed,
+                         List<Question> manual, BlockingQueue<Question> queue, GenerationMonitor monitor) {
+            this.content = content;
+            this.file = file;
+            this.numQuestions = numQuestions;
+            this.forceMCQ = forceMCQ;
+            this.seed = seed;
+            this.manual = new ArrayList<>(manual);
+            this.mergeRandom = new SplittableRandom(mixSeed(seed, -1));
+            this.queue = queue;
+            this.monitor = monitor;
+        }
+
+        void run() {
+            try {
+                for (Question q : manual) {
+                    filter.add(q); // generated questions never repeat a manual one
+                }
+                if (file != null) {
+                    produceFromFile();
+                } else {
+                    produceFromContent();
+                }
+                while (manualNext < manual.size()) {
+                    put(manual.get(manualNext++));
+                }
+            } catch (CancellationException | InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("Error in question producer: " + e.getMessage());
+                e.printStackTrace();
+            }
+            try {
+                put(END_OF_STREAM);
+            } catch (CancellationException | InterruptedException e) {
+                // quiz already gone
+            }
+        }
+
+        private void produceFromContent() throws InterruptedException {
+            List<String> sentences = new ArrayList<>();
+            for (String t : SentenceSegmenter.split(content)) {
+                if (Tokenizer.hasTokens(t, 4)) {
+                    sentences.add(t);
+                }
+            }
+            CorpusStats.Builder statsBuilder = new CorpusStats.Builder(stopwords);
+            CorpusStats stats;
+            try {
+                for (String sentence : sentences) {
+                    monitor.checkCancelled();
+                    statsBuilder.add(sentence);
+                }
+                stats = statsBuilder.finish();
+            } finally {
+                statsBuilder.cancel(); // no-op once finished
+            }
+
+            shuffle(sentences, new SplittableRandom(seed));
+            for (int pass = 0; pass < 2; pass++) {
+                for (String sentence : sentences) {
+                    if (generated >= numQuestions) {
+                        return;
+                    }
+                    offerCandidate(sentence, stats);
+                }
+            }
+        }
+
+        private void produceFromFile() throws IOException, InterruptedException {
+            try (SentenceReader reader = new SentenceReader(file)) {
+                List<String> head = new ArrayList<>();
+                CorpusStats stats = new CorpusStats(stopwords);
+                String sentence;
+                while (head.size() < STREAM_STATS_SENTENCES && (sentence = reader.nextSentence()) != null) {
+                    monitor.checkCancelled();
+                    if (Tokenizer.hasTokens(sentence, 4)) {
+                        head.add(sentence);
+                        stats.add(sentence);
+                    }
+                }
+                stats.finish();
+
+                for (String s : head) {
+                    if (generated >= numQuestions) {
+                        return;
+                    }
+                    offerCandidate(s, stats);
+                }
+                while (generated < numQuestions && (sentence = reader.nextSentence()) != null) {
+                    monitor.checkCancelled();
+                    if (Tokenizer.hasTokens(sentence, 4)) {
+                        offerCandidate(sentence, stats);
+                    }
+                }
+            }
+        }
+
+        private void offerCandidate(String sentence, CorpusStats stats) throws InterruptedException {
+            monitor.checkCancelled();
+            int k = candidate++;
+            Question q;
+            try {
+                q = generateQuestionOfType(sentence, questionType(forceMCQ, generated),
+                        new SplittableRandom(mixSeed(seed, k)), stats);
+            } catch (Exception e) {
+                System.out.println("Error generating question from sentence: " + e.getMessage());
+                return;
+            }
+            if (q == null || !filter.add(q)) {
+                return;
+            }
+            // Streaming merge: each remaining manual question is equally likely at any remaining position
+            int manualLeft = manual.size() - manualNext;
+            while (manualLeft > 0 && mergeRandom.nextInt(manualLeft + numQuestions - generated) < manualLeft) {
+                put(manual.get(manualNext++));
+                manualLeft--;
+            }
+            put(q);
+            generated++;
+        }
+
+        // Blocks while the queue is full, giving up once the quiz is over
+        private void put(Question q) throws InterruptedException {
+            while (!queue.offer(q, 100, TimeUnit.MILLISECONDS)) {
+                monitor.checkCancelled();
+            }
+        }
+    }
+
+    // ====== Single Questions ======
+    // type: 0 = MCQ, 1 = TRUE/FALSE, 2 = FILL_IN_BLANK (falls back to TRUE/FALSE)
+    public Question generateQuestionOfType(String sentence, int type, SplittableRandom rnd, CorpusStats stats) {
+        if (type == 0) {
+            return generateMCQ(sentence, rnd, stats);
+        } else if (type == 1) {
+            return generateTrueFalse(sentence);
+        }
+        Question q = generateFillBlank(sentence, stats);
+        if (q == null) {
+            q = generateTrueFalse(sentence);
+        }
+        return q;
+    }
+
+    public Question generateMCQ(String sentence, SplittableRandom rnd, CorpusStats stats) {
+        try {
+            if (sentence == null || sentence.trim().isEmpty()) {
+                return null;
+            }
+            
+            // Extract key information from the sentence to create meaningful MCQ
+            Tokenizer tokens = TOKENIZER.get();
+            int wordCount = tokens.tokenize(sentence);
+            
+            if (wordCount == 0) {
+                return null;
+            }
+            
+            // Try to identify a key term or concept in the sentence
+            String cleanKeyTerm = null;
+            int keyTermId = -1;
+            boolean keyPhrase = false;
+            String questionText;
+            
+            if (stats != null) {
+                // Most informative word or phrase by TF-IDF over the whole document
+                int best = stats.bestTerm(sentence, tokens);
+                if (best >= 0) {
+                    cleanKeyTerm = tokens.cleaned(CorpusStats.spanStart(best), CorpusStats.spanWords(best));
+                    keyTermId = stats.termId(sentence, tokens, best);
+                    keyPhrase = CorpusStats.spanWords(best) > 1;
+                }
+            } else {
+                // Look for important words (nouns, technical terms)
+                for (int i = 0; i < wordCount; i++) {
+                    if (tokens.cleanLength(i) > 5 && !isCommonWord(sentence, tokens.start(i), tokens.end(i))) {
+                        cleanKeyTerm = tokens.cleaned(i);
+                        break;
+                    }
+                }
+            }
+            
+            if (cleanKeyTerm != null && wordCount > 5) {
+                // Create a question by replacing the key term with a blank or asking about it
+                questionText = "According to the content:\n\n\"" + sentence + "\"\n\nWhat " +
+                        (keyPhrase ? "term" : "word") + " best fits in place of \"" + cleanKeyTerm + "\"?";
+                
+                // Generate plausible options including the correct answer
+                String correct = cleanKeyTerm;
+                // Prefer real terms from the same document with a similar frequency,
+                // then top up with the rule-based distractors
+                List<String> distractors = new ArrayList<>();
+                if (keyTermId >= 0) {
+                    distractors.addAll(stats.similarTerms(keyTermId, 3, rnd, sentence));
+                }
+                if (distractors.size() < 3) {
+                    for (String d : generateDistractors(cleanKeyTerm, sentence, rnd)) {
+                        if (distractors.size() < 3 && !distractors.contains(d)) {
+                            distractors.add(d);
+                        }
+                    }
+                }
+                
+                if (distractors == null || distractors.isEmpty()) {
+                    // Fallback if distractor generation failed
+                    distractors = new ArrayList<>();
+                    distractors.add("Option A");
+                    distractors.add("Option B");
+                    distractors.add("Option C");
+                }
+                
+                List<String> opts = new ArrayList<>();
+                opts.add(correct);
+                opts.addAll(distractors);
+                shuffle(opts, rnd);
+                int correctIndex = opts.indexOf(correct);
+                
+                String[] formattedOptions = new String[Math.min(4, opts.size())];
+                for (int i = 0; i < formattedOptions.length; i++) {
+                    formattedOptions[i] = opts.get(i);
+                }
+                
+                return new Question(0, questionText, formattedOptions, correctIndex, null);
+            } else {
+                // Fallback: comprehension-style question
+                questionText = "Which statement is correct about the following?\n\n" + sentence;
+                
+                String correct = "The statement is accurate as presented";
+                String[] distractors = new String[]{
+                    "The statement is completely false",
+                    "The opposite meaning is true",
+                    "This information is not mentioned"
+                };
+                
+                List<String> opts = new ArrayList<>();
+                opts.add(correct);
+                opts.addAll(Arrays.asList(distractors));
+                shuffle(opts, rnd);
+                int correctIndex = opts.indexOf(correct);
+                
+                String[] formattedOptions = new String[4];
+                for (int i = 0; i < 4; i++) {
+                    formattedOptions[i] = opts.get(i);
+                }
+                
+                return new Question(0, questionText, formattedOptions, correctIndex, null);
+            }
+        } catch (Exception e) {
+            System.out.println("Error in generateMCQ: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    public boolean isCommonWord(String word) {
+        return stopwords.contains(word);
+    }
+
+    // Allocation-free variant for a token inside a sentence
+    private boolean isCommonWord(CharSequence text, int start, int end) {
+        return stopwords.contains(text, start, end);
+    }
+    
+    public List<String> generateDistractors(String correctAnswer, String context, SplittableRandom rnd) {
+        List<String> distractors = new ArrayList<>();
+        
+        try {
+            if (correctAnswer == null || correctAnswer.trim().isEmpty()) {
+                distractors.add("Option A");
+                distractors.add("Option B");
+                distractors.add("Option C");
+                return distractors;
+            }
+            
+            // Strategy 1: Check for domain-specific alternatives
+            // (keys are matched by the prebuilt automaton, see initDistractorDictionaries)
+            int domainTerm = domainTerms.match(correctAnswer);
+            if (domainTerm >= 0) {
+                String[] alternatives = domainTerms.alternatives(domainTerm);
+                for (int i = 0; i < Math.min(2, alternatives.length); i++) {
+                    int randomIdx = rnd.nextInt(alternatives.length);
+                    if (!distractors.contains(alternatives[randomIdx])) {
+                        distractors.add(alternatives[randomIdx]);
+                    }
+                }
+            }
+        
+        // Strategy 2: Similar words with character variations
+        if (correctAnswer.length() > 5 && distractors.size() < 3) {
+            // Swap characters
+            char[] chars = correctAnswer.toCharArray();
+            if (chars.length > 2) {
+                char temp = chars[0];
+                chars[0] = chars[1];
+                chars[1] = temp;
+                distractors.add(new String(chars));
+            }
+        }
+        
+        // Strategy 3: Common wrong answers for specific types
+        if (correctAnswer.matches(".*[0-9].*")) {
+            // If it contains numbers, generate similar numbers
+            distractors.add(correctAnswer.replaceAll("[0-9]", String.valueOf(rnd.nextInt(9) + 1)));
+        }
+        
+        // Strategy 4: Opposite or contrasting terms
+        int opposite = opposites.match(correctAnswer);
+        if (opposite >= 0) {
+            distractors.add(correctAnswer.replace(opposites.term(opposite), opposites.alternatives(opposite)[0]));
+        }
+        
+        // Fill remaining slots with unique distractors
+        int attempts = 0;
+        while (distractors.size() < 3 && attempts < 20) {
+            String candidate;
+            if (distractors.size() < 1) {
+                // First distractor: try generic wrong answer
+                candidate = GENERIC_WRONG_ANSWERS[rnd.nextInt(GENERIC_WRONG_ANSWERS.length)];
+            } else if (distractors.size() < 2 && correctAnswer.length() > 4) {
+                // Second distractor: modified correct answer
+                if (rnd.nextBoolean()) {
+                    candidate = correctAnswer.substring(0, correctAnswer.length() - 1) + "ed";
+                } else {
+                    candidate = "Non-" + correctAnswer.toLowerCase();
+                }
+            } else {
+                // Third distractor: another variation
+                candidate = correctAnswer.toLowerCase() + "ing";
+            }
+            
+            if (!distractors.contains(candidate) && !candidate.equalsIgnoreCase(correctAnswer)) {
+                distractors.add(candidate);
+            }
+            attempts++;
+        }
+        
+        // Ensure we have at least 3 distractors - add simple ones if needed
+        while (distractors.size() < 3) {
+            String simple = "Option " + (char)('A' + distractors.size());
+            if (!distractors.contains(simple)) {
+                distractors.add(simple);
+            }
+        }
+        
+        // Return exactly 3 unique distractors
+        List<String> unique = new ArrayList<>();
+        for (String d : distractors) {
+            if (!d.equalsIgnoreCase(correctAnswer) && unique.size() < 3) {
+                if (!unique.contains(d)) {
+                    unique.add(d);
+                }
+            }
+        }
+        
+        // Final safety check
+        if (unique.size() < 3) {
+            for (int i = unique.size(); i < 3; i++) {
+                unique.add("Wrong option " + (i + 1));
+            }
+        }
+        
+        return unique;
+        
+        } catch (Exception e) {
+            System.out.println("Error in generateDistractors: " + e.getMessage());
+            e.printStackTrace();
+            // Return default distractors on error
+            List<String> fallback = new ArrayList<>();
+            fallback.add("Option A");
+            fallback.add("Option B");
+            fallback.add("Option C");
+            return fallback;
+        }
+    }
+
+    public Question generateTrueFalse(String sentence) {
+        try {
+            if (sentence == null || sentence.trim().isEmpty()) {
+                return null;
+            }
+            String questionText = "True or False: " + sentence + ".";
+            String[] options = new String[]{"True", "False"};
+            int correctIndex = 0;
+            return new Question(1, questionText, options, correctIndex, null);
+        } catch (Exception e) {
+            System.out.println("Error in generateTrueFalse: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public Question generateFillBlank(String sentence) {
+        return generateFillBlank(sentence, null);
+    }
+
+    /** Blanks out a key phrase of the sentence when stats know one, otherwise its longest word. */
+    public Question generateFillBlank(String sentence, CorpusStats stats) {
+        try {
+            if (sentence == null || sentence.trim().isEmpty()) {
+                return null;
+            }
+            
+            Tokenizer tokens = TOKENIZER.get();
+            int wordCount = tokens.tokenize(sentence);
+            if (wordCount == 0) {
+                return null;
+            }
+            
+            if (stats != null) {
+                int best = stats.bestTerm(sentence, tokens);
+                if (best >= 0 && CorpusStats.spanWords(best) > 1) {
+                    int first = CorpusStats.spanStart(best);
+                    int n = CorpusStats.spanWords(best);
+                    String questionText = "Fill in the blank:\n" + tokens.joinReplacing(first, n, "_____") + ".";
+                    return new Question(2, questionText, null, -1, tokens.cleaned(first, n));
+                }
+            }
+
+            int idx = -1;
+            int maxLen = 0;
+            for (int i = 0; i < wordCount; i++) {
+                int len = tokens.cleanLength(i);
+                if (len > maxLen && len >= 5) {
+                    maxLen = len;
+                    idx = i;
+                }
+            }
+            if (idx == -1) return null;
+
+            String answer = tokens.cleaned(idx);
+            String questionText = "Fill in the blank:\n" + tokens.joinReplacing(idx, "_____") + ".";
+            return new Question(2, questionText, null, -1, answer);
+        } catch (Exception e) {
+            System.out.println("Error in generateFillBlank: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Content-addressed cache of generated question sets.
+ *
+ * Keys are SHA-256 digests of the source content plus every parameter that
+ * affects generation (count, category, difficulty, seed, MCQ preference and
+ * the generator's dictionary fingerprint), so the same material with the
+ * same settings always maps to the same entry.
+ * Two tiers:
+ *   - memory: a small LRU (access-ordered LinkedHashMap)
+ *   - disk:   one compact binary file per entry under the cache directory,
+ *             so repeat quizzes survive restarts; the oldest files are
+ *             pruned when the directory grows past its limit.
+ * Entries are stored as snapshots and every get() returns fresh Question
+ * copies, because a running quiz writes userAnswer/isCorrect into them.
+ */
+public class QuestionSetCache {
+
+    // Bump whenever generation output changes so stale sets are not served
+    static final int KEY_VERSION = 7;
+    private static final int FILE_MAGIC = 0x51534554; // "QSET"
+    private static final String FILE_SUFFIX = ".qset";
+
+    private final File dir;
+    private final int diskEntries;
+    private final Map<String, List<Question>> memory;
+
+    public QuestionSetCache(File dir, final int memoryEntries, int diskEntries) {
+        this.dir = dir;
+        this.diskEntries = diskEntries;
+        this.memory = new LinkedHashMap<String, List<Question>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Question>> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    // ====== Keys ======
+
+    public static String key(String content, int count, String category, String difficulty,
+                             long seed, boolean forceMCQ, String dictionaries) {
+        MessageDigest digest = newDigest(count, category, difficulty, seed, forceMCQ, dictionaries);
+        digest.update(content.getBytes(StandardCharsets.UTF_8));
+        return hex(digest.digest());
+    }
+
+    /** Key for a file source: the file's bytes are streamed through the digest. */
+    public static String key(File file, int count, String category, String difficulty,
+                             long seed, boolean forceMCQ, String dictionaries) throws IOException {
+        MessageDigest digest = newDigest(count, category, difficulty, seed, forceMCQ, dictionaries);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest newDigest(int count, String category, String difficulty,
+                                           long seed, boolean forceMCQ, String dictionaries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String params = KEY_VERSION + "|" + count + "|" + category + "|" + difficulty + "|" +
+                    seed + "|" + forceMCQ + "|" + dictionaries + "|";
+            digest.update(params.getBytes(StandardCharsets.UTF_8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ====== Lookup ======
+
+    /** Returns copies of the cached questions, or null on a miss. */
+    public List<Question> get(String key) {
+        List<Question> cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached == null) {
+            cached = readFromDisk(key);
+            if (cached == null) {
+                return null;
+            }
+            synchronized (memory) {
+                memory.put(key, cached);
+            }
+        }
+        return copyOf(cached);
+    }
+
+    public void put(String key, List<Question> questions) {
+        List<Question> snapshot = copyOf(questions);
+        synchronized (memory) {
+            memory.put(key, snapshot);
+        }
+        try {
+            writeToDisk(key, snapshot);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ====== Disk tier ======
+
+    private List<Question> readFromDisk(String key) {
+        File f = new File(dir, key + FILE_SUFFIX);
+        if (!f.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a question set file: " + f);
+            }
+            int count = in.readInt();
+            List<Question> questions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                questions.add(readQuestion(in));
+            }
+            f.setLastModified(System.currentTimeMillis()); // keep recently used files on disk
+            return questions;
+        } catch (IOException e) {
+            System.out.println("Discarding unreadable cache entry " + f.getName() + ": " + e.getMessage());
+            f.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, List<Question> questions) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + dir);
+        }
+        File tmp = File.createTempFile(key, ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(questions.size());
+            for (Question q : questions) {
+                writeQuestion(out, q);
+            }
+        }
+        File target = new File(dir, key + FILE_SUFFIX);
+        Files.move(tmp.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        prune(target);
+    }
+
+    private void prune(File keep) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= diskEntries) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        int excess = files.length - diskEntries;
+        for (int i = 0; i < files.length && excess > 0; i++) {
+            if (!files[i].equals(keep) && files[i].delete()) {
+                excess--;
+            }
+        }
+    }
+
+    // ====== Question encoding (shared with the question bank format) ======
+
+    static void writeQuestion(DataOutput out, Question q) throws IOException {
+        out.writeByte(q.type);
+        writeString(out, q.text);
+        int optionCount = q.options == null ? -1 : q.options.length;
+        out.writeByte(optionCount);
+        for (int i = 0; i < optionCount; i++) {
+            writeString(out, q.options[i]);
+        }
+        out.writeByte(q.correctIndex);
+        writeString(out, q.correctText);
+    }
+
+    static Question readQuestion(DataInput in) throws IOException {
+        int type = in.readByte();
+        String text = readString(in);
+        int optionCount = in.readByte();
+        String[] options = null;
+        if (optionCount >= 0) {
+            options = new String[optionCount];
+            for (int i = 0; i < optionCount; i++) {
+                options[i] = readString(in);
+            }
+        }
+        int correctIndex = in.readByte();
+        String correctText = readString(in);
+        return new Question(type, text, options, correctIndex, correctText);
+    }
+
+    // Length-prefixed UTF-8 (-1 = null); unlike writeUTF there is no 64 KB limit
+    static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static List<Question> copyOf(List<Question> questions) {
+        List<Question> copy = new ArrayList<>(questions.size());
+        for (Question q : questions) {
+            copy.add(new Question(q.type, q.text,
+                    q.options == null ? null : q.options.clone(), q.correctIndex, q.correctText));
+        }
+        return copy;
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,373 @@
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Benchmark harness for the question generation engine.
+ *
+ * How to run:
+ * 1) Compile: javac -encoding UTF-8 -d bench-out *.java
+ * 2) Run:     java -Xmx4g -cp bench-out QuizBenchmark [options]
+ *
+ * Options:
+ *   --filter <text>       only benchmarks whose name contains text
+ *   --warmup <n>          warmup iterations (default 3)
+ *   --iterations <n>      measured iterations (default 5)
+ *   --time <ms>           length of one iteration (default 1000)
+ *   --max-size <bytes>    largest synthetic document, e.g. 10m (default 100m)
+ *   --out <file.csv>      save results, to be used as a later baseline
+ *   --baseline <file.csv> print the change against saved results
+ *
+ * Each iteration calls the operation until the iteration time has passed
+ * (at least once) and reports ops/s as mean and 99.9% error over the
+ * measured iterations. Allocation is summed over all JVM threads, so
+ * fork-join helpers count, and is reported as bytes/op. GC time
+ * (sum of the collector MXBeans) is reported per iteration. Document
+ * benchmarks also report MB/s. For thread scaling, rerun with
+ * -Djava.util.concurrent.ForkJoinPool.common.parallelism=N.
+ */
+public class QuizBenchmark {
+
+    private static final long[] SYNTHETIC_SIZES = {
+        1024, 10 * 1024, 100 * 1024, 1024 * 1024, 10 * 1024 * 1024, 100 * 1024 * 1024
+    };
+    private static final int QUESTIONS_PER_RUN = 20;
+
+    private interface Op {
+        long run();
+    }
+
+    private static class Benchmark {
+        final String name;
+        final long bytesPerOp; // input size for MB/s, 0 = not a document benchmark
+        final Op op;
+
+        Benchmark(String name, long bytesPerOp, Op op) {
+            this.name = name;
+            this.bytesPerOp = bytesPerOp;
+            this.op = op;
+        }
+    }
+
+    // Results are folded into this so the JIT can't drop the work
+    private static volatile long sink;
+
+    // The engine logs to System.out; that is muted while an iteration runs
+    private static final PrintStream CONSOLE = System.out;
+    private static final PrintStream MUTED = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    private String filter = "";
+    private int warmup = 3;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private long maxSize = 100L * 1024 * 1024;
+    private File outFile;
+    private File baselineFile;
+    private QuestionGenerator generator;
+
+    public static void main(String[] args) throws IOException {
+        QuizBenchmark bench = new QuizBenchmark();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--filter": bench.filter = value; i++; break;
+                case "--warmup": bench.warmup = Integer.parseInt(value); i++; break;
+                case "--iterations": bench.iterations = Integer.parseInt(value); i++; break;
+                case "--time": bench.iterationMillis = Long.parseLong(value); i++; break;
+                case "--max-size": bench.maxSize = parseSize(value); i++; break;
+                case "--out": bench.outFile = new File(value); i++; break;
+                case "--baseline": bench.baselineFile = new File(value); i++; break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        bench.run();
+    }
+
+    private void run() throws IOException {
+        IntelligentQuizApp.initSampleContent();
+        generator = QuestionGenerator.loadDefaults();
+
+        Map<String, String> baseline = baselineFile == null ? Collections.emptyMap() : readResults(baselineFile);
+        List<String> results = new ArrayList<>();
+        System.out.println(String.format("%-44s %14s %10s %10s %12s %9s %9s",
+                "Benchmark", "ops/s", "+/-", "MB/s", "B/op", "gc ms/it", "vs base"));
+
+        for (Benchmark b : benchmarks()) {
+            if (!b.name.contains(filter)) continue;
+            String row = measure(b, baseline.get(b.name));
+            results.add(row);
+        }
+
+        if (outFile != null) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(outFile), StandardCharsets.UTF_8))) {
+                out.println("benchmark,ops_per_s,error,bytes_per_op");
+                for (String row : results) {
+                    out.println(row);
+                }
+            }
+            System.out.println("Results saved to " + outFile);
+        }
+    }
+
+    // ====== Benchmarks ======
+
+    private List<Benchmark> benchmarks() throws IOException {
+        List<Benchmark> list = new ArrayList<>();
+
+        // Whole-document generation over the bundled corpora
+        Map<String, String> corpora = new LinkedHashMap<>();
+        corpora.put("sample_ml", readFile("sample_ml.txt"));
+        corpora.put("sample_python", readFile("sample_python.txt"));
+        for (String category : new String[]{"Java", "AI", "Networking"}) {
+            corpora.put("builtin_" + category, IntelligentQuizApp.sampleContent.get(category));
+        }
+        for (Map.Entry<String, String> e : corpora.entrySet()) {
+            if (e.getValue() != null) {
+                list.add(generateQuestions(e.getKey(), e.getValue()));
+            }
+        }
+        for (long size : SYNTHETIC_SIZES) {
+            if (size <= maxSize && (filter.isEmpty() || ("generateQuestions/synthetic_" + label(size)).contains(filter))) {
+                list.add(generateQuestions("synthetic_" + label(size), syntheticDocument(size, 42)));
+            }
+        }
+
+        // Per-sentence operations on sample_ml.txt
+        String corpus = corpora.get("sample_ml") != null ? corpora.get("sample_ml") : syntheticDocument(64 * 1024, 7);
+        List<String> sentences = new ArrayList<>();
+        for (String t : SentenceSegmenter.split(corpus)) {
+            if (Tokenizer.hasTokens(t, 4)) sentences.add(t);
+        }
+        CorpusStats stats = new CorpusStats(generator.stopwords());
+        for (String s : sentences) stats.add(s);
+        stats.finish();
+
+        List<String> answers = new ArrayList<>();
+        List<String> contexts = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        Tokenizer tokens = new Tokenizer();
+        for (String s : sentences) {
+            int n = tokens.tokenize(s);
+            int best = stats.bestTerm(s, tokens);
+            if (best >= 0) {
+                answers.add(tokens.cleaned(CorpusStats.spanStart(best), CorpusStats.spanWords(best)));
+                contexts.add(s);
+            }
+            for (int t = 0; t < n; t++) words.add(tokens.cleaned(t));
+        }
+
+        final SplittableRandom rnd = new SplittableRandom(1);
+        final int[] cursor = new int[1];
+        list.add(new Benchmark("generateMCQ/sample_ml", 0, () -> {
+            String s = sentences.get(cursor[0]++ % sentences.size());
+            return hash(generator.generateMCQ(s, rnd, stats));
+        }));
+        list.add(new Benchmark("generateDistractors/sample_ml", 0, () -> {
+            int i = cursor[0]++ % answers.size();
+            return generator.generateDistractors(answers.get(i), contexts.get(i), rnd).size();
+        }));
+        list.add(new Benchmark("generateFillBlank/sample_ml", 0, () -> {
+            String s = sentences.get(cursor[0]++ % sentences.size());
+            return hash(generator.generateFillBlank(s));
+        }));
+        list.add(new Benchmark("segmentSentences/sample_ml", corpus.getBytes(StandardCharsets.UTF_8).length,
+                () -> SentenceSegmenter.split(corpus).size()));
+        // Re-grading stored answers: one compiled key against a typo'd answer
+        final FuzzyMatcher[] keys = new FuzzyMatcher[answers.size()];
+        final String[] typed = new String[answers.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String a = answers.get(i);
+            keys[i] = new FuzzyMatcher(a, FuzzyMatcher.DEFAULT_MAX_EDITS);
+            typed[i] = a.length() > 1 ? a.substring(0, a.length() / 2) + a.substring(a.length() / 2 + 1) : a;
+        }
+        list.add(new Benchmark("fuzzyMatch/sample_ml", 0, () -> {
+            int i = cursor[0]++ % keys.length;
+            return keys[i].distance(typed[i]);
+        }));
+        list.add(new Benchmark("isCommonWord/sample_ml", 0, () -> {
+            // One op = one pass over every token of the corpus
+            long hits = 0;
+            for (String w : words) {
+                if (generator.isCommonWord(w)) hits++;
+            }
+            return hits;
+        }));
+        return list;
+    }
+
+    private Benchmark generateQuestions(String corpusName, String content) {
+        long bytes = content.getBytes(StandardCharsets.UTF_8).length;
+        final long[] seed = {1};
+        return new Benchmark("generateQuestions/" + corpusName, bytes, () -> {
+            List<Question> qs = generator.generateQuestions(content, QUESTIONS_PER_RUN,
+                    seed[0]++, false, GenerationMonitor.NONE);
+            return qs.size();
+        });
+    }
+
+    // ====== Measurement ======
+
+    private String measure(Benchmark b, String baselineRow) {
+        for (int i = 0; i < warmup; i++) {
+            runIteration(b);
+        }
+        double[] opsPerSecond = new double[iterations];
+        long totalOps = 0, totalBytes = 0, totalGcMillis = 0;
+        for (int i = 0; i < iterations; i++) {
+            long gcBefore = gcMillis();
+            long allocBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long ops = runIteration(b);
+            long elapsed = System.nanoTime() - start;
+            totalBytes += allocatedBytes() - allocBefore;
+            totalGcMillis += gcMillis() - gcBefore;
+            totalOps += ops;
+            opsPerSecond[i] = ops * 1e9 / elapsed;
+        }
+
+        double mean = 0;
+        for (double v : opsPerSecond) mean += v;
+        mean /= iterations;
+        double var = 0;
+        for (double v : opsPerSecond) var += (v - mean) * (v - mean);
+        double stdDev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+        double error = 3.29 * stdDev / Math.sqrt(iterations); // 99.9% normal interval
+        long bytesPerOp = totalOps == 0 ? 0 : totalBytes / totalOps;
+
+        String mbPerSecond = b.bytesPerOp > 0 ? String.format("%.2f", mean * b.bytesPerOp / (1024 * 1024)) : "-";
+        String change = "-";
+        if (baselineRow != null) {
+            double base = Double.parseDouble(baselineRow.split(",")[1]);
+            change = String.format("%+.1f%%", (mean - base) * 100 / base);
+        }
+        System.out.println(String.format("%-44s %14.2f %10.2f %10s %12d %9.1f %9s",
+                b.name, mean, error, mbPerSecond, bytesPerOp, (double) totalGcMillis / iterations, change));
+        return b.name + "," + mean + "," + error + "," + bytesPerOp;
+    }
+
+    // Runs the op until the iteration time is used up; returns the op count
+    private long runIteration(Benchmark b) {
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000L;
+        long ops = 0;
+        long acc = 0;
+        System.setOut(MUTED);
+        try {
+            do {
+                acc += b.op.run();
+                ops++;
+            } while (System.nanoTime() < deadline);
+        } finally {
+            System.setOut(CONSOLE);
+        }
+        sink += acc;
+        return ops;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // ====== Inputs ======
+
+    /**
+     * Deterministic pseudo-English document of roughly size bytes: sentences
+     * of 8 to 20 words drawn from a fixed technical vocabulary with a skewed
+     * (Zipf-like) distribution, so term statistics look like real material.
+     */
+    static String syntheticDocument(long size, long seed) {
+        String[] vocabulary = (
+            "the a of and to in is are was for with on by as that this from which can be uses " +
+            "algorithm memory network processor compiler database learning protocol transaction " +
+            "interface variable function gradient descent regression classifier training dataset " +
+            "inheritance polymorphism encapsulation abstraction thread scheduler kernel register " +
+            "cache pipeline latency throughput bandwidth encryption authentication router packet " +
+            "python library module iterator generator decorator exception closure recursion " +
+            "neural layer activation optimizer overfitting validation feature vector matrix"
+        ).split(" ");
+        Random rnd = new Random(seed);
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 16, size + 256));
+        while (sb.length() < size) {
+            int words = 8 + rnd.nextInt(13);
+            for (int w = 0; w < words; w++) {
+                // Squaring the uniform value skews picks towards the front of the list
+                double u = rnd.nextDouble();
+                String word = vocabulary[(int) (u * u * vocabulary.length)];
+                if (w == 0) {
+                    sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    sb.append(' ').append(word);
+                }
+            }
+            sb.append(". ");
+        }
+        return sb.toString();
+    }
+
+    private static String readFile(String name) throws IOException {
+        File f = new File(name);
+        if (!f.exists()) {
+            System.out.println("Skipping missing corpus " + name);
+            return null;
+        }
+        return new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> readResults(File file) throws IOException {
+        Map<String, String> rows = new HashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("benchmark,")) continue;
+            int comma = line.indexOf(',');
+            if (comma > 0) rows.put(line.substring(0, comma), line);
+        }
+        return rows;
+    }
+
+    private static long hash(Question q) {
+        return q == null ? 0 : q.text.length();
+    }
+
+    private static String label(long size) {
+        if (size >= 1024 * 1024) return (size / (1024 * 1024)) + "MB";
+        return (size / 1024) + "KB";
+    }
+
+    private static long parseSize(String s) {
+        String t = s.trim().toLowerCase();
+        long unit = 1;
+        if (t.endsWith("k")) unit = 1024;
+        else if (t.endsWith("m")) unit = 1024 * 1024;
+        if (unit > 1) t = t.substring(0, t.length() - 1);
+        return Long.parseLong(t) * unit;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * One row of quiz_results.csv, and the one-pass reader the derived results
+ * files (ResultsLog, ResultsAggregates) use to import the CSV.
+ *
+ * Both layouts of the file are understood: the 7-column rows of the Swing
+ * app (username,category,difficulty,score,total,accuracy,yyyy-MM-dd HH:mm:ss)
+ * and the 5-column rows of the AWT variant (username,score,total,accuracy,
+ * Date.toString()), whose category and difficulty become UNKNOWN.
+ */
+public class ResultRecord {
+
+    static final String UNKNOWN = "-";
+
+    private static final DateTimeFormatter LEGACY_TIME =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+
+    final String user;
+    final String category;
+    final String difficulty;
+    final int score;
+    final int total;
+    final long timestamp; // epoch millis, 0 = unknown
+
+    ResultRecord(String user, String category, String difficulty, int score, int total, long timestamp) {
+        this.user = user;
+        this.category = category;
+        this.difficulty = difficulty;
+        this.score = score;
+        this.total = total;
+        this.timestamp = timestamp;
+    }
+
+    public double accuracy() {
+        return total == 0 ? 0 : score * 100.0 / total;
+    }
+
+    /** Receives each parsed row of readFrom(). */
+    public interface Sink {
+        void accept(ResultRecord record) throws IOException;
+    }
+
+    /**
+     * Parses the complete lines of csv from byte offset on, in one pass, and
+     * returns the offset after the last complete line (a final line without
+     * '\n' may still be being written and is left for the next call).
+     * Malformed lines are skipped, and so is the header, which can only be
+     * the first line of the file (files started by the old AWT variant have
+     * none, so a first line that is a valid row is kept).
+     */
+    public static long readFrom(File csv, long offset, Sink sink) throws IOException {
+        try (FileChannel in = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(256 * 1024);
+            byte[] line = new byte[256];
+            int lineLength = 0;
+            long pos = offset;
+            long lineStart = pos;
+            while (in.read(chunk, pos) > 0) {
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    byte b = chunk.get();
+                    pos++;
+                    if (b != '\n') {
+                        if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLength++] = b;
+                        continue;
+                    }
+                    if (lineLength > 0 && line[lineLength - 1] == '\r') lineLength--;
+                    String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+                    ResultRecord record = lineStart == 0 && isHeader(text) ? null : parse(text);
+                    if (record != null) {
+                        sink.accept(record);
+                    }
+                    lineLength = 0;
+                    lineStart = pos;
+                }
+                chunk.clear();
+            }
+            return lineStart;
+        }
+    }
+
+    /**
+     * The row of one CSV line, or null for blank or malformed lines. A user
+     * may be called "username"; only readFrom() knows where the header is.
+     */
+    public static ResultRecord parse(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length < 5) {
+            return null;
+        }
+        boolean full = parts.length >= 7;
+        try {
+            return new ResultRecord(parts[0],
+                    full ? parts[1] : UNKNOWN,
+                    full ? parts[2] : UNKNOWN,
+                    Integer.parseInt(parts[full ? 3 : 1].trim()),
+                    Integer.parseInt(parts[full ? 4 : 2].trim()),
+                    parseTime(parts[full ? 6 : 4].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The first line of the file, when it names the columns instead of holding a result
+    private static boolean isHeader(String firstLine) {
+        return firstLine.startsWith("username,") && parse(firstLine) == null;
+    }
+
+    // "yyyy-MM-dd HH:mm:ss" (local time) or Date.toString(); 0 when neither
+    static long parseTime(String s) {
+        if (s.length() == 19 && s.charAt(4) == '-' && s.charAt(10) == ' ') {
+            try {
+                LocalDateTime t = LocalDateTime.of(digits(s, 0, 4), digits(s, 5, 2), digits(s, 8, 2),
+                        digits(s, 11, 2), digits(s, 14, 2), digits(s, 17, 2));
+                return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (RuntimeException e) {
+                return 0;
+            }
+        }
+        try {
+            return ZonedDateTime.parse(s, LEGACY_TIME).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static int digits(String s, int start, int n) {
+        int v = 0;
+        for (int i = start; i < start + n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') throw new NumberFormatException(s);
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
@@ -0,0 +1,312 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Running statistics over quiz_results.csv, per user, per category and per
+ * difficulty, so no screen has to rescan the results history.
+ *
+ * Each group keeps the number of results, the mean and variance of the
+ * accuracy (Welford's online update, numerically stable and O(1) per
+ * result), the best accuracy and the last result. As a ResultsWriter
+ * listener it is updated on the writer thread right after each result
+ * reaches the CSV, with the CSV length at that point; if other rows reached
+ * the CSV first (the AWT variant writes to it too), they are read from the
+ * file along with that result.
+ *
+ * The statistics are saved to <name>.qstats next to the CSV (temp file +
+ * move), together with the CSV offset they cover: every SAVE_EVERY results
+ * and when the writer closes. On open, whatever the CSV gained after that
+ * offset - the results since the last save, or rows written by the AWT
+ * variant - is folded in with one streaming pass; without a usable .qstats
+ * file that pass starts at the beginning of the CSV, which is also how
+ * rebuild() works.
+ */
+public class ResultsAggregates implements ResultsWriter.Listener, Closeable {
+
+    static final int SAVE_EVERY = 1000;
+    private static final int MAGIC = 0x51414747; // "QAGG"
+    private static final int VERSION = 1;
+
+    /** Statistics of one user, category or difficulty. */
+    public static class Stats {
+        long count;
+        double mean;
+        double m2;
+        double best;
+        int lastScore;
+        int lastTotal;
+        long lastTimestamp;
+
+        void add(ResultRecord r) {
+            double accuracy = r.accuracy();
+            count++;
+            double delta = accuracy - mean;
+            mean += delta / count;
+            m2 += delta * (accuracy - mean);
+            best = count == 1 ? accuracy : Math.max(best, accuracy);
+            lastScore = r.score;
+            lastTotal = r.total;
+            lastTimestamp = r.timestamp;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double mean() {
+            return mean;
+        }
+
+        /** Sample variance of the accuracy; 0 below two results. */
+        public double variance() {
+            return count < 2 ? 0 : m2 / (count - 1);
+        }
+
+        public double stdDev() {
+            return Math.sqrt(variance());
+        }
+
+        public double best() {
+            return best;
+        }
+
+        public int lastScore() {
+            return lastScore;
+        }
+
+        public int lastTotal() {
+            return lastTotal;
+        }
+
+        public long lastTimestamp() {
+            return lastTimestamp;
+        }
+
+        Stats copy() {
+            Stats s = new Stats();
+            s.count = count;
+            s.mean = mean;
+            s.m2 = m2;
+            s.best = best;
+            s.lastScore = lastScore;
+            s.lastTotal = lastTotal;
+            s.lastTimestamp = lastTimestamp;
+            return s;
+        }
+    }
+
+    private final File csv;
+    private final File file;
+    private final Map<String, Stats> users = new HashMap<>();
+    private final Map<String, Stats> categories = new TreeMap<>();
+    private final Map<String, Stats> difficulties = new TreeMap<>();
+    private long csvOffset = 0;
+    private int unsaved = 0;
+
+    private ResultsAggregates(File csv) {
+        this.csv = csv;
+        String base = csv.getPath().endsWith(".csv")
+                ? csv.getPath().substring(0, csv.getPath().length() - 4) : csv.getPath();
+        this.file = new File(base + ".qstats");
+    }
+
+    /** Loads the saved statistics for csv and folds in the rows added since. */
+    public static ResultsAggregates open(File csv) throws IOException {
+        ResultsAggregates aggregates = new ResultsAggregates(csv);
+        if (!aggregates.load()) {
+            aggregates.clear();
+        }
+        aggregates.catchUp();
+        return aggregates;
+    }
+
+    /** Recomputes everything from the CSV in one streaming pass. */
+    public synchronized void rebuild() throws IOException {
+        clear();
+        catchUp();
+    }
+
+    private void catchUp() throws IOException {
+        if (!csv.exists()) {
+            return;
+        }
+        if (csv.length() < csvOffset) {
+            clear(); // the CSV was truncated or replaced
+        }
+        if (csv.length() > csvOffset) {
+            long end = ResultRecord.readFrom(csv, csvOffset, this::fold);
+            if (end != csvOffset) {
+                csvOffset = end;
+                save();
+            }
+        }
+    }
+
+    private void clear() {
+        users.clear();
+        categories.clear();
+        difficulties.clear();
+        csvOffset = 0;
+    }
+
+    // ====== Updates ======
+
+    /** Called by the results writer after record's line, [lineStart, csvEnd) of the CSV, is on disk. */
+    @Override
+    public synchronized void appended(ResultRecord record, long lineStart, long csvEnd) {
+        if (csvEnd <= csvOffset) {
+            return; // already folded in by catchUp()
+        }
+        if (lineStart > csvOffset) {
+            // Rows written by someone else since csvOffset; the pass includes record
+            try {
+                catchUp();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        fold(record);
+        csvOffset = csvEnd;
+        if (++unsaved >= SAVE_EVERY) {
+            saveQuietly();
+        }
+    }
+
+    private void fold(ResultRecord r) {
+        group(users, r.user).add(r);
+        group(categories, r.category).add(r);
+        group(difficulties, r.difficulty).add(r);
+    }
+
+    private static Stats group(Map<String, Stats> map, String key) {
+        Stats s = map.get(key);
+        if (s == null) {
+            s = new Stats();
+            map.put(key, s);
+        }
+        return s;
+    }
+
+    // ====== Queries (copies, safe to use on any thread) ======
+
+    public synchronized Stats user(String username) {
+        Stats s = users.get(username);
+        return s == null ? null : s.copy();
+    }
+
+    public synchronized Map<String, Stats> categories() {
+        return copy(categories);
+    }
+
+    public synchronized Map<String, Stats> difficulties() {
+        return copy(difficulties);
+    }
+
+    public synchronized int userCount() {
+        return users.size();
+    }
+
+    private static Map<String, Stats> copy(Map<String, Stats> map) {
+        Map<String, Stats> out = new TreeMap<>();
+        for (Map.Entry<String, Stats> e : map.entrySet()) {
+            out.put(e.getKey(), e.getValue().copy());
+        }
+        return out;
+    }
+
+    // ====== Persistence ======
+
+    private boolean load() {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            csvOffset = in.readLong();
+            readGroups(in, users);
+            readGroups(in, categories);
+            readGroups(in, difficulties);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Rebuilding results statistics: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void readGroups(DataInputStream in, Map<String, Stats> map) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String key = in.readUTF();
+            Stats s = new Stats();
+            s.count = in.readLong();
+            s.mean = in.readDouble();
+            s.m2 = in.readDouble();
+            s.best = in.readDouble();
+            s.lastScore = in.readInt();
+            s.lastTotal = in.readInt();
+            s.lastTimestamp = in.readLong();
+            map.put(key, s);
+        }
+    }
+
+    /** Writes the statistics atomically; also done every SAVE_EVERY results and on close(). */
+    public synchronized void save() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(csvOffset);
+            writeGroups(out, users);
+            writeGroups(out, categories);
+            writeGroups(out, difficulties);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        unsaved = 0;
+    }
+
+    private static void writeGroups(DataOutputStream out, Map<String, Stats> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, Stats> e : map.entrySet()) {
+            Stats s = e.getValue();
+            out.writeUTF(e.getKey());
+            out.writeLong(s.count);
+            out.writeDouble(s.mean);
+            out.writeDouble(s.m2);
+            out.writeDouble(s.best);
+            out.writeInt(s.lastScore);
+            out.writeInt(s.lastTotal);
+            out.writeLong(s.lastTimestamp);
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized void writerClosed() {
+        if (unsaved > 0) {
+            saveQuietly();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (unsaved > 0) {
+            save();
+        }
+    }
+}
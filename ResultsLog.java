@@ -0,0 +1,477 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Binary mirror of quiz_results.csv for fast scans.
+ *
+ * quiz_results.csv stays the file the apps append to (and users open in a
+ * spreadsheet); this log is derived from it and kept next to it:
+ *   <name>.qlog   header + one fixed-width 32-byte row per result
+ *   <name>.qdict  dictionary of user, category and difficulty strings,
+ *                 appended as [int length][UTF-8]; a string's id is its index
+ *
+ * .qlog layout (big-endian):
+ *   int magic "QRLG", int version, int rowCount, int dictCount,
+ *   long csvOffset (bytes of the CSV imported so far), long unused
+ *   rowCount x { int user, int category, int difficulty, int score,
+ *                int total, long timestamp (epoch millis, 0 = unknown), int unused }
+ *
+ * Rows are read straight from a read-only mapping; any column of row i is
+ * at a fixed offset, so a scan touches no strings. sync() imports what the
+ * CSV gained since csvOffset in one pass, complete lines only, through
+ * ResultRecord, which understands the 7-column rows of the Swing app and
+ * the 5-column rows of the AWT variant (category and difficulty "-"). A log that
+ * is damaged, or claims more of the CSV than the file now has (it was
+ * truncated or replaced by a shorter one), is rebuilt from scratch: an
+ * empty log is written to temp files and moved over the old ones, which may
+ * still be mapped and so cannot be truncated in place on Windows.
+ */
+public class ResultsLog implements Closeable {
+
+    private static final int MAGIC = 0x51524C47; // "QRLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    static final int ROW_SIZE = 32;
+    private static final int MAX_ROWS = (Integer.MAX_VALUE - HEADER_SIZE) / ROW_SIZE;
+
+    // Column offsets within a row; the int ones can be read in bulk with column()
+    static final int USER_COLUMN = 0, CATEGORY_COLUMN = 4, DIFFICULTY_COLUMN = 8,
+            SCORE_COLUMN = 12, TOTAL_COLUMN = 16;
+    private static final int USER = USER_COLUMN, CATEGORY = CATEGORY_COLUMN, DIFFICULTY = DIFFICULTY_COLUMN,
+            SCORE = SCORE_COLUMN, TOTAL = TOTAL_COLUMN, TIME = 20;
+
+    private final File csv;
+    private final File logFile;
+    private final File dictFile;
+    private FileChannel log;
+    private FileChannel dict;
+    private MappedByteBuffer rows;
+    private int rowCount;
+    private long csvOffset;
+    // Dictionary: the .qdict bytes in memory, where each entry starts, and a
+    // hash table of id + 1 (0 = empty) keyed by the entry's bytes. The table
+    // is only built when an import needs it, so opening a log just to read it
+    // never hashes the dictionary.
+    private byte[] dictBytes = new byte[4096];
+    private int dictLength = 0;
+    private int dictSaved = 0;
+    private int[] starts = new int[256];
+    private int dictCount = 0;
+    private int[] table = null;
+
+    private ResultsLog(File csv) {
+        this.csv = csv;
+        String base = csv.getPath().endsWith(".csv")
+                ? csv.getPath().substring(0, csv.getPath().length() - 4) : csv.getPath();
+        this.logFile = new File(base + ".qlog");
+        this.dictFile = new File(base + ".qdict");
+    }
+
+    /** Opens the log for csv (creating or repairing it) and imports any new rows. */
+    public static ResultsLog open(File csv) throws IOException {
+        ResultsLog results = new ResultsLog(csv);
+        try {
+            if (!results.load()) {
+                results.reset();
+            }
+            results.sync();
+            return results;
+        } catch (IOException | RuntimeException e) {
+            results.close();
+            throw e;
+        }
+    }
+
+    // false when there is no usable log yet
+    private boolean load() throws IOException {
+        openChannels();
+        if (log.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        log.read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            return false;
+        }
+        int count = header.getInt();
+        int dictCount = header.getInt();
+        long offset = header.getLong();
+        if (count < 0 || log.size() < HEADER_SIZE + (long) count * ROW_SIZE || offset > csv.length()) {
+            return false;
+        }
+        if (!readDictionary(dictCount)) {
+            return false;
+        }
+        rowCount = count;
+        csvOffset = offset;
+        remap();
+        return true;
+    }
+
+    private boolean readDictionary(int count) throws IOException {
+        clearDictionary();
+        long size = dict.size();
+        if (size > Integer.MAX_VALUE - 8) {
+            return false;
+        }
+        ByteBuffer all = ByteBuffer.allocate((int) size);
+        while (all.hasRemaining() && dict.read(all, all.position()) > 0) {
+        }
+        byte[] bytes = all.array();
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + 4 > bytes.length) return false;
+            int len = ByteBuffer.wrap(bytes, pos, 4).getInt();
+            if (len < 0 || pos + 4 + len > bytes.length) return false;
+            addEntry(bytes, pos + 4, len);
+            pos += 4 + len;
+        }
+        dictSaved = dictLength;
+        // Strings written by a sync that never got to its header
+        dict.truncate(pos);
+        return true;
+    }
+
+    private void clearDictionary() {
+        dictLength = 0;
+        dictSaved = 0;
+        dictCount = 0;
+        table = null;
+    }
+
+    private void openChannels() throws IOException {
+        log = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dict = FileChannel.open(dictFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Replaces both files with an empty log (temp files + move) and reopens them
+    private void reset() throws IOException {
+        clearDictionary();
+        rowCount = 0;
+        csvOffset = 0;
+        File dir = logFile.getAbsoluteFile().getParentFile();
+        File logTmp = File.createTempFile(logFile.getName(), ".tmp", dir);
+        File dictTmp = File.createTempFile(dictFile.getName(), ".tmp", dir);
+        try {
+            Files.write(logTmp.toPath(), header().array());
+            close();
+            rows = null;
+            // Dictionary first: an empty .qdict under the old .qlog fails load() and is rebuilt
+            Files.move(dictTmp.toPath(), dictFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(logTmp.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            logTmp.delete();
+            dictTmp.delete();
+        }
+        openChannels();
+        remap();
+    }
+
+    private void remap() throws IOException {
+        rows = log.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) rowCount * ROW_SIZE);
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(dictCount)
+                .putLong(csvOffset).putLong(0).flip();
+        return header;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = header();
+        while (header.hasRemaining()) {
+            log.write(header, header.position());
+        }
+    }
+
+    // ====== Import ======
+
+    /**
+     * Imports the CSV lines added since the last sync; returns the number of
+     * rows added. Cheap (one length check) when nothing changed.
+     */
+    public synchronized int sync() throws IOException {
+        long length = csv.length();
+        if (length < csvOffset) {
+            reset(); // the CSV was truncated or replaced
+        }
+        if (length == csvOffset) {
+            return 0;
+        }
+        int before = rowCount;
+        ByteBuffer out = ByteBuffer.allocate(ROW_SIZE * 2048);
+        long rowEnd = HEADER_SIZE + (long) rowCount * ROW_SIZE;
+
+        long[] end = {rowEnd};
+        csvOffset = ResultRecord.readFrom(csv, csvOffset, record -> {
+            if (rowCount < MAX_ROWS) {
+                appendRow(record, out);
+                if (!out.hasRemaining()) {
+                    end[0] = flushRows(out, end[0]);
+                }
+            }
+        });
+        rowEnd = end[0];
+        flushRows(out, rowEnd);
+        if (dictLength > dictSaved) {
+            ByteBuffer bytes = ByteBuffer.wrap(dictBytes, dictSaved, dictLength - dictSaved);
+            while (bytes.hasRemaining()) {
+                dict.write(bytes, bytes.position());
+            }
+            dictSaved = dictLength;
+        }
+        // Header last: a crash before it leaves the previous, consistent state
+        writeHeader();
+        remap();
+        return rowCount - before;
+    }
+
+    private long flushRows(ByteBuffer out, long rowEnd) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            rowEnd += log.write(out, rowEnd);
+        }
+        out.clear();
+        return rowEnd;
+    }
+
+    private void appendRow(ResultRecord record, ByteBuffer out) {
+        out.putInt(id(record.user))
+                .putInt(id(record.category))
+                .putInt(id(record.difficulty))
+                .putInt(record.score)
+                .putInt(record.total)
+                .putLong(record.timestamp)
+                .putInt(0);
+        rowCount++;
+    }
+
+    // ====== Dictionary ======
+
+    // Id of s, added to the dictionary (and saved by the next sync) if new
+    private int id(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int id = find(bytes, 0, bytes.length);
+        return id >= 0 ? id : addEntry(bytes, 0, bytes.length);
+    }
+
+    private int find(byte[] bytes, int from, int len) {
+        if (table == null) {
+            rehash(512);
+        }
+        int mask = table.length - 1;
+        for (int i = hash(bytes, from, len) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int start = starts[table[i] - 1];
+            if (entryLength(start) == len && sameBytes(dictBytes, start + 4, bytes, from, len)) {
+                return table[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Arrays.equals over two ranges (the range overload is Java 9+)
+    private static boolean sameBytes(byte[] a, int aFrom, byte[] b, int bFrom, int len) {
+        for (int i = 0; i < len; i++) {
+            if (a[aFrom + i] != b[bFrom + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Appends [len][bytes] to dictBytes and indexes it; returns the new id
+    private int addEntry(byte[] bytes, int from, int len) {
+        if (dictLength + 4 + len > dictBytes.length) {
+            dictBytes = Arrays.copyOf(dictBytes, Math.max(dictBytes.length * 2, dictLength + 4 + len));
+        }
+        int start = dictLength;
+        ByteBuffer.wrap(dictBytes, start, 4).putInt(len);
+        System.arraycopy(bytes, from, dictBytes, start + 4, len);
+        dictLength += 4 + len;
+        if (dictCount == starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+        int id = dictCount++;
+        starts[id] = start;
+        if (table != null) {
+            if (dictCount * 2 > table.length) {
+                rehash(table.length * 2);
+            } else {
+                insert(id);
+            }
+        }
+        return id;
+    }
+
+    private void rehash(int minSize) {
+        int size = Integer.highestOneBit(Math.max(minSize, dictCount * 4) - 1) << 1;
+        table = new int[size];
+        for (int id = 0; id < dictCount; id++) {
+            insert(id);
+        }
+    }
+
+    private void insert(int id) {
+        int start = starts[id];
+        int mask = table.length - 1;
+        int i = hash(dictBytes, start + 4, entryLength(start)) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = id + 1;
+    }
+
+    private int entryLength(int start) {
+        return ((dictBytes[start] & 0xFF) << 24) | ((dictBytes[start + 1] & 0xFF) << 16)
+                | ((dictBytes[start + 2] & 0xFF) << 8) | (dictBytes[start + 3] & 0xFF);
+    }
+
+    private static int hash(byte[] bytes, int from, int len) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < from + len; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // ====== Rows ======
+
+    public synchronized int size() {
+        return rowCount;
+    }
+
+    public synchronized String user(int row) {
+        return string(column(row, USER));
+    }
+
+    public synchronized String category(int row) {
+        return string(column(row, CATEGORY));
+    }
+
+    public synchronized String difficulty(int row) {
+        return string(column(row, DIFFICULTY));
+    }
+
+    /** Dictionary id of the row's user, for comparisons without strings. */
+    public synchronized int userId(int row) {
+        return column(row, USER);
+    }
+
+    public synchronized int score(int row) {
+        return column(row, SCORE);
+    }
+
+    public synchronized int total(int row) {
+        return column(row, TOTAL);
+    }
+
+    public synchronized double accuracy(int row) {
+        int total = total(row);
+        return total == 0 ? 0 : score(row) * 100.0 / total;
+    }
+
+    /** Epoch millis, or 0 when the CSV timestamp could not be read. */
+    public synchronized long timestamp(int row) {
+        return rows.getLong(offset(row) + TIME);
+    }
+
+    public synchronized String formattedTimestamp(int row) {
+        long t = timestamp(row);
+        return t == 0 ? ResultRecord.UNKNOWN : new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(t));
+    }
+
+    /**
+     * One int column (USER_COLUMN, SCORE_COLUMN, ...) of every row, read in
+     * a single pass over the mapping.
+     */
+    public synchronized int[] column(int column) {
+        int[] values = new int[rowCount];
+        for (int row = 0, pos = HEADER_SIZE + column; row < rowCount; row++, pos += ROW_SIZE) {
+            values[row] = rows.getInt(pos);
+        }
+        return values;
+    }
+
+    public synchronized long[] timestamps() {
+        long[] values = new long[rowCount];
+        for (int row = 0, pos = HEADER_SIZE + TIME; row < rowCount; row++, pos += ROW_SIZE) {
+            values[row] = rows.getLong(pos);
+        }
+        return values;
+    }
+
+    /** Number of dictionary strings; ids run from 0 to this minus one. */
+    public synchronized int dictionarySize() {
+        return dictCount;
+    }
+
+    /**
+     * Ranks the dictionary strings that occur in ids (a column) in
+     * case-insensitive order; the result is indexed by id, so a string
+     * column can be sorted as ints. Strings not in ids get -1.
+     */
+    public synchronized int[] dictionaryRanks(int[] ids) {
+        boolean[] used = new boolean[dictCount];
+        int distinct = 0;
+        for (int id : ids) {
+            if (!used[id]) {
+                used[id] = true;
+                distinct++;
+            }
+        }
+        // "lower-cased text \0 original \0 id" sorts with plain String.compareTo
+        String[] keys = new String[distinct];
+        int k = 0;
+        for (int id = 0; id < dictCount; id++) {
+            if (used[id]) {
+                String value = string(id);
+                keys[k++] = value.toLowerCase() + '\0' + value + '\0' + id;
+            }
+        }
+        Arrays.sort(keys);
+        int[] ranks = new int[dictCount];
+        Arrays.fill(ranks, -1);
+        for (int rank = 0; rank < distinct; rank++) {
+            String key = keys[rank];
+            ranks[Integer.parseInt(key.substring(key.lastIndexOf('\0') + 1))] = rank;
+        }
+        return ranks;
+    }
+
+    public synchronized String string(int id) {
+        int start = starts[id];
+        return new String(dictBytes, start + 4, entryLength(start), StandardCharsets.UTF_8);
+    }
+
+    private int column(int row, int column) {
+        return rows.getInt(offset(row) + column);
+    }
+
+    private int offset(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+        return HEADER_SIZE + row * ROW_SIZE;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (log != null) log.close();
+        } finally {
+            if (dict != null) dict.close();
+        }
+    }
+}
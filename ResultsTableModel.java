@@ -0,0 +1,195 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+/**
+ * Table model for the results panel, read lazily from a ResultsLog.
+ *
+ * The model holds no rows: JTable only asks for the cells it paints, and
+ * each one is read from the log's mapping (row i is at a fixed offset), so
+ * a history of millions of results costs nothing until it is scrolled to.
+ * Sorting never boxes or compares cells: sortOrder() reads the key column
+ * in bulk, packs key and row into one long each and sorts the longs, which
+ * gives a primitive int permutation from view rows to log rows. String
+ * columns sort by the rank of their dictionary string, so a column with
+ * 400k distinct users sorts 400k strings, not every row; the ranks are
+ * kept until the dictionary gains a string, so re-sorting after new
+ * results from known users skips that step. Reversing the direction just
+ * reverses the permutation.
+ */
+public class ResultsTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int USER = 0, CATEGORY = 1, DIFFICULTY = 2, SCORE = 3, ACCURACY = 4, DATE = 5;
+    private static final String[] COLUMNS = {"User", "Category", "Difficulty", "Score", "Accuracy", "Date"};
+
+    private final ResultsLog log;
+    private int rowCount;
+    // View row -> log row; null while in file (= completion) order
+    private int[] order = null;
+    private int sortColumn = -1;
+    private boolean descending = false;
+    // Per string column: dictionary ranks and the dictionary size they were computed for
+    private final int[][] rankCache = new int[COLUMNS.length][];
+    private final int[] rankCacheSize = new int[COLUMNS.length];
+
+    public ResultsTableModel(ResultsLog log) {
+        this.log = log;
+        this.rowCount = log.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) {
+            return COLUMNS[column];
+        }
+        return COLUMNS[column] + (descending ? " ▼" : " ▲");
+    }
+
+    @Override
+    public Object getValueAt(int viewRow, int column) {
+        int row = logRow(viewRow);
+        if (row >= log.size()) {
+            return ""; // the log was rebuilt by a sync off the EDT; refresh() follows
+        }
+        switch (column) {
+            case USER: return log.user(row);
+            case CATEGORY: return log.category(row);
+            case DIFFICULTY: return log.difficulty(row);
+            case SCORE: return log.score(row) + "/" + log.total(row);
+            case ACCURACY: return String.format("%.2f%%", log.accuracy(row));
+            default: return log.formattedTimestamp(row);
+        }
+    }
+
+    public int logRow(int viewRow) {
+        return order == null ? viewRow : order[viewRow];
+    }
+
+    public int sortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /** Shows rows the log gained since the last call, in file order. */
+    public void refresh() {
+        order = null;
+        sortColumn = -1;
+        rowCount = log.size();
+        fireTableDataChanged();
+    }
+
+    /** Installs an order computed by sortOrder(); call on the EDT. */
+    public void setOrder(int column, boolean descending, int[] order) {
+        this.sortColumn = column;
+        this.descending = descending;
+        this.order = order;
+        this.rowCount = order.length;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Same column, opposite direction: reverses the current order in place
+     * instead of sorting again. False if there is no sorted order to reverse.
+     */
+    public boolean reverseOrder() {
+        if (order == null) {
+            return false;
+        }
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        descending = !descending;
+        fireTableDataChanged();
+        return true;
+    }
+
+    /**
+     * Permutation of all current log rows sorted by column; safe to call off
+     * the EDT. Ties keep file order (reversed when descending).
+     */
+    public int[] sortOrder(int column, boolean descending) {
+        int[] keys = sortKeys(column);
+        int n = keys.length;
+        long[] packed = new long[n];
+        for (int row = 0; row < n; row++) {
+            packed[row] = ((long) keys[row] << 32) | row;
+        }
+        Arrays.sort(packed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[descending ? n - 1 - i : i] = (int) packed[i];
+        }
+        return order;
+    }
+
+    // One non-negative int per row whose order is the column's order
+    private int[] sortKeys(int column) {
+        switch (column) {
+            case USER: return ranked(column, ResultsLog.USER_COLUMN);
+            case CATEGORY: return ranked(column, ResultsLog.CATEGORY_COLUMN);
+            case DIFFICULTY: return ranked(column, ResultsLog.DIFFICULTY_COLUMN);
+            case SCORE: return log.column(ResultsLog.SCORE_COLUMN);
+            case ACCURACY: {
+                int[] scores = log.column(ResultsLog.SCORE_COLUMN);
+                int[] totals = log.column(ResultsLog.TOTAL_COLUMN);
+                for (int row = 0; row < scores.length; row++) {
+                    // Basis points; clamped so odd rows (negative or > total) still sort
+                    scores[row] = totals[row] <= 0 ? 0
+                            : (int) Math.max(0, Math.min(Integer.MAX_VALUE, scores[row] * 10000L / totals[row]));
+                }
+                return scores;
+            }
+            default: {
+                long[] times = log.timestamps();
+                int[] minutes = new int[times.length];
+                for (int row = 0; row < times.length; row++) {
+                    minutes[row] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, times[row] / 60000));
+                }
+                return minutes;
+            }
+        }
+    }
+
+    private int[] ranked(int column, int logColumn) {
+        int[] ids = log.column(logColumn);
+        synchronized (rankCache) {
+            int[] ranks = rankCache[column];
+            if (ranks == null || rankCacheSize[column] != log.dictionarySize() || !ranksAll(ranks, ids)) {
+                ranks = log.dictionaryRanks(ids);
+                rankCache[column] = ranks;
+                rankCacheSize[column] = ranks.length;
+            }
+            for (int row = 0; row < ids.length; row++) {
+                ids[row] = ranks[ids[row]];
+            }
+        }
+        return ids;
+    }
+
+    // False when a cached ranking lacks a string the column uses now
+    // (the string was already in the dictionary, from another column)
+    private static boolean ranksAll(int[] ranks, int[] ids) {
+        for (int id : ids) {
+            if (id >= ranks.length || ranks[id] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous, batched appender for the results CSV.
+ *
+ * submit() only queues the line, so finishing a quiz never touches the
+ * disk on the EDT. A single "results-writer" thread keeps the file open in
+ * append mode and writes whatever has queued up as one batch: after the
+ * first line of a batch it lingers up to lingerMillis for more (a lab
+ * finishing at the same moment becomes one write), up to MAX_BATCH lines.
+ * With fsync set, every batch is forced to disk before the next one;
+ * otherwise the OS decides when. The header is written when the file is
+ * empty.
+ *
+ * flush() waits until everything submitted so far has been written (the
+ * results panel calls it before reading the file). close() - also run by
+ * the shutdown hook from install() - stops accepting lines, drains the
+ * queue and closes the file.
+ *
+ * Listeners see each written line as a ResultRecord, on the writer thread,
+ * together with the file offsets where that line starts and ends; they are how the
+ * derived results files stay current without rereading the CSV.
+ */
+public class ResultsWriter implements Closeable {
+
+    static final int MAX_BATCH = 1024;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    // Queued by close() after the last line
+    private static final String END = new String("<end>");
+
+    /** Told about every line after it has been written; runs on the writer thread. */
+    public interface Listener {
+        /**
+         * record's line spans [lineStart, lineEnd) of the file; lines before
+         * lineStart may come from another process (the AWT variant).
+         */
+        void appended(ResultRecord record, long lineStart, long lineEnd);
+
+        /** The writer has drained and closed the file. */
+        default void writerClosed() {
+        }
+    }
+
+    private final File file;
+    private final String header;
+    private final int lingerMillis;
+    private final boolean fsync;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private FileChannel channel;
+    // Lines submitted / written (or failed); flush() waits for them to meet
+    private long submitted = 0;
+    private long completed = 0;
+    private boolean closed = false;
+
+    public ResultsWriter(File file, String header, int lingerMillis, boolean fsync) {
+        this.file = file;
+        this.header = header;
+        this.lingerMillis = lingerMillis;
+        this.fsync = fsync;
+        this.writer = new Thread(this::writeLoop, "results-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Starts a writer and registers a shutdown hook that drains it. */
+    public static ResultsWriter install(File file, String header, int lingerMillis, boolean fsync) {
+        ResultsWriter w = new ResultsWriter(file, header, lingerMillis, fsync);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                w.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "results-writer-shutdown"));
+        return w;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Queues one CSV line (without line terminator). */
+    public void submit(String line) {
+        synchronized (this) {
+            if (closed) {
+                System.out.println("Results writer closed; dropping result: " + line);
+                return;
+            }
+            submitted++;
+            queue.add(line);
+        }
+    }
+
+    /** Blocks until every line submitted before this call has been written. */
+    public synchronized void flush() {
+        long target = submitted;
+        while (completed < target && writer.isAlive()) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        boolean end = false;
+        while (!end) {
+            batch.clear();
+            try {
+                String first = queue.take();
+                if (first == END) {
+                    end = true;
+                } else {
+                    batch.add(first);
+                    end = collect(batch);
+                }
+            } catch (InterruptedException e) {
+                end = true;
+                queue.drainTo(batch);
+                batch.remove(END);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+        }
+        closeChannel();
+        for (Listener listener : listeners) {
+            listener.writerClosed();
+        }
+    }
+
+    // Lingers for more lines after the first; true when END was reached
+    private boolean collect(List<String> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        while (batch.size() < MAX_BATCH) {
+            long left = deadline - System.nanoTime();
+            String next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return false;
+            }
+            if (next == END) {
+                return true;
+            }
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private void writeBatch(List<String> batch) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            StringBuilder sb = new StringBuilder(batch.size() * 64);
+            if (channel.size() == 0 && header != null) {
+                sb.append(header).append(System.lineSeparator());
+            }
+            for (String line : batch) {
+                sb.append(line).append(System.lineSeparator());
+            }
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(sb.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+            if (!listeners.isEmpty()) {
+                notifyListeners(batch, channel.size());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.out.println("Could not write " + batch.size() + " result(s) to " + file);
+            closeChannel(); // reopened for the next batch
+        } finally {
+            synchronized (this) {
+                completed += batch.size();
+                notifyAll();
+            }
+        }
+    }
+
+    // Walks back from the end of the file to each line's start and end offsets
+    private void notifyListeners(List<String> batch, long end) {
+        long[] starts = new long[batch.size()];
+        long[] ends = new long[batch.size()];
+        int separator = System.lineSeparator().length();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            ends[i] = end;
+            end -= batch.get(i).getBytes(StandardCharsets.UTF_8).length + separator;
+            starts[i] = end;
+        }
+        for (int i = 0; i < ends.length; i++) {
+            ResultRecord record = ResultRecord.parse(batch.get(i));
+            if (record == null) {
+                continue;
+            }
+            for (Listener listener : listeners) {
+                try {
+                    listener.appended(record, starts[i], ends[i]);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(END);
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            throw new IOException("Results writer did not drain within " + CLOSE_TIMEOUT_MILLIS + " ms");
+        }
+    }
+}
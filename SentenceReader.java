@@ -0,0 +1,113 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming sentence reader for large uploaded text files.
+ *
+ * The file is read through a FileChannel in fixed-size chunks and decoded
+ * incrementally, and sentences are handed out one at a time, so memory stays
+ * bounded no matter how big the file is. Sentence boundaries come from the
+ * same SentenceSegmenter the generator uses on in-memory content, so
+ * abbreviations and decimals survive; line breaks count as spaces.
+ *
+ * Usage:
+ *   try (SentenceReader reader = new SentenceReader(file)) {
+ *       String sentence;
+ *       while ((sentence = reader.nextSentence()) != null) { ... }
+ *   }
+ */
+public class SentenceReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // Longer "sentences" are almost always tables or code dumps - skip them
+    static final int MAX_SENTENCE_CHARS = 4096;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+    private final StringBuilder current = new StringBuilder(256);
+    private final SentenceSegmenter segmenter = new SentenceSegmenter();
+    private boolean overflow = false;
+    private boolean eof = false;
+
+    public SentenceReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        chars.flip(); // nothing decoded yet
+    }
+
+    /**
+     * Returns the next non-empty, trimmed sentence, or null at end of file.
+     */
+    public String nextSentence() throws IOException {
+        while (true) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (overflow) {
+                    current.setLength(0); // dropped anyway; the segmenter only needs c
+                }
+                current.append(c);
+                if (segmenter.boundaryBefore(current, current.length() - 1)) {
+                    // c opens the next sentence
+                    String sentence = overflow ? null : SentenceSegmenter.clean(current, 0, current.length() - 1, true);
+                    current.setLength(0);
+                    current.append(c);
+                    overflow = false;
+                    if (sentence != null) return sentence;
+                } else if (current.length() > MAX_SENTENCE_CHARS) {
+                    overflow = true;
+                }
+            }
+
+            if (eof) {
+                return takeSentence();
+            }
+            fill();
+        }
+    }
+
+    /** Bytes consumed from the file so far, for progress reporting. */
+    public long position() throws IOException {
+        return channel.position();
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    private String takeSentence() {
+        String sentence = overflow ? null : SentenceSegmenter.clean(current, 0, current.length(), true);
+        current.setLength(0);
+        overflow = false;
+        return sentence;
+    }
+
+    private void fill() throws IOException {
+        int n = channel.read(bytes);
+        if (n < 0) {
+            eof = true;
+        }
+        bytes.flip();
+        chars.clear();
+        decoder.decode(bytes, chars, eof);
+        if (eof) {
+            decoder.flush(chars);
+        }
+        bytes.compact();
+        chars.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
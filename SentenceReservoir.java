@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Uniform random sample of a fixed number of sentences from a stream of
+ * unknown length, taken in one pass (reservoir sampling, Li's Algorithm L).
+ *
+ * Memory is capacity strings no matter how long the document is. Instead of
+ * drawing a random number for every sentence offered, the sampler draws how
+ * many sentences to skip before the next replacement, so a textbook-sized
+ * stream costs O(capacity * log(n / capacity)) random draws. The sample is
+ * returned in document order, which keeps the sentence of each question
+ * next to the ones it was read with. Not thread-safe.
+ */
+public class SentenceReservoir {
+
+    // toList() packs the slot index into the low 24 bits of the sort key
+    static final int MAX_CAPACITY = 1 << 24;
+
+    private final String[] sentences;
+    private final long[] positions;
+    private final SplittableRandom rnd;
+    private long seen = 0;
+    private long nextReplace;
+    private double w;
+
+    public SentenceReservoir(int capacity, SplittableRandom rnd) {
+        this.sentences = new String[Math.max(1, Math.min(capacity, MAX_CAPACITY))];
+        this.positions = new long[sentences.length];
+        this.rnd = rnd;
+        this.w = Math.exp(Math.log(uniform()) / sentences.length);
+        this.nextReplace = sentences.length + skip();
+    }
+
+    public void offer(String sentence) {
+        long position = seen++;
+        if (position < sentences.length) {
+            sentences[(int) position] = sentence;
+            positions[(int) position] = position;
+            return;
+        }
+        if (position == nextReplace) {
+            int slot = rnd.nextInt(sentences.length);
+            sentences[slot] = sentence;
+            positions[slot] = position;
+            w *= Math.exp(Math.log(uniform()) / sentences.length);
+            nextReplace += 1 + skip();
+        }
+    }
+
+    /** Number of sentences offered so far. */
+    public long seen() {
+        return seen;
+    }
+
+    /** The sampled sentences in the order they were offered. */
+    public List<String> toList() {
+        int n = (int) Math.min(seen, sentences.length);
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (positions[i] << 24) | i;
+        }
+        Arrays.sort(order);
+        List<String> sample = new ArrayList<>(n);
+        for (long entry : order) {
+            sample.add(sentences[(int) (entry & 0xFFFFFF)]);
+        }
+        return sample;
+    }
+
+    // Geometric number of sentences to pass over before the next replacement
+    private long skip() {
+        return (long) Math.floor(Math.log(uniform()) / Math.log(1 - w));
+    }
+
+    // Uniform in (0, 1], so the logarithms above stay finite
+    private double uniform() {
+        return 1.0 - rnd.nextDouble();
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-pass sentence boundary detector, replacing the old split on every
+ * '.', '?' and '!'.
+ *
+ * Characters are mapped to a handful of classes and run through a small
+ * transition table, one character at a time with no regex backtracking, so
+ * it works the same on a String or on the buffer a SentenceReader fills
+ * chunk by chunk. Only a period looks back, at the word before it. A sentence ends at a terminator (plus any closing quotes
+ * or brackets) followed by whitespace and something that can start a
+ * sentence - an upper-case letter, digit, quote or bracket - or at a blank
+ * line. That leaves "3.14", "file.txt", "e.g. the" and "(JVM). The" intact
+ * or split in the right place. A period after a known abbreviation ("Dr.",
+ * "Fig.", "vs.") or a single letter ("U.S.", "J. Smith") never ends a
+ * sentence, except at a blank line.
+ *
+ * Usage: split() for a whole text, or feed each position to boundaryBefore()
+ * and cut the text wherever it returns true. An instance keeps the state of
+ * one text and is not thread-safe.
+ */
+public class SentenceSegmenter {
+
+    // Character classes
+    private static final int UPPER = 0, LOWER = 1, DIGIT = 2, SPACE = 3, NEWLINE = 4,
+            PERIOD = 5, TERMINATOR = 6, CLOSER = 7, OPENER = 8, OTHER = 9;
+    private static final int CLASSES = 10;
+
+    // States
+    private static final int TEXT = 0;         // inside a sentence
+    private static final int AFTER_PERIOD = 1; // '.' after an ordinary word or number
+    private static final int AFTER_ABBREV = 2; // '.' after an abbreviation or initial
+    private static final int AFTER_TERM = 3;   // '?', '!' or a run of terminators
+    private static final int CLOSING = 4;      // quotes/brackets after a terminator
+    private static final int GAP = 5;          // whitespace after a terminator: next char decides
+    private static final int ABBREV_GAP = 6;   // whitespace after an abbreviation
+    private static final int LINE_BREAK = 7;   // one newline inside a sentence
+    private static final int STATES = 8;
+
+    // Table entries: next state, plus this flag when a sentence ends before the character
+    private static final int BOUNDARY = 0x100;
+
+    private static final byte[] ASCII_CLASS = new byte[128];
+    private static final int[][] TRANSITIONS = new int[STATES][CLASSES];
+    // TRANSITIONS flattened to [state * CLASSES + class] for the per-character lookup
+    private static final int[] TABLE = new int[STATES * CLASSES];
+    // ASCII characters that leave TEXT unchanged; split() skips over runs of them
+    private static final boolean[] PLAIN_TEXT = new boolean[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            int cls = OTHER;
+            if (c >= 'A' && c <= 'Z') cls = UPPER;
+            else if (c >= 'a' && c <= 'z') cls = LOWER;
+            else if (c >= '0' && c <= '9') cls = DIGIT;
+            else if (c == ' ' || c == '\t' || c == '\f') cls = SPACE;
+            else if (c == '\n' || c == '\r') cls = NEWLINE;
+            else if (c == '.') cls = PERIOD;
+            else if (c == '?' || c == '!') cls = TERMINATOR;
+            else if (c == '"' || c == '\'' || c == ')' || c == ']') cls = CLOSER;
+            else if (c == '(' || c == '[') cls = OPENER;
+            ASCII_CLASS[c] = (byte) cls;
+        }
+
+        // Ordinary text; every other state falls back to these for unlisted classes
+        int[] text = TRANSITIONS[TEXT];
+        Arrays.fill(text, TEXT);
+        text[NEWLINE] = LINE_BREAK;
+        text[PERIOD] = AFTER_PERIOD;
+        text[TERMINATOR] = AFTER_TERM;
+        for (int s = 1; s < STATES; s++) {
+            System.arraycopy(text, 0, TRANSITIONS[s], 0, CLASSES);
+        }
+
+        for (int s : new int[]{AFTER_PERIOD, AFTER_TERM, CLOSING}) {
+            TRANSITIONS[s][SPACE] = GAP;
+            TRANSITIONS[s][NEWLINE] = GAP;
+            TRANSITIONS[s][PERIOD] = AFTER_TERM; // "..." or "?."
+            TRANSITIONS[s][CLOSER] = CLOSING;
+        }
+        TRANSITIONS[AFTER_ABBREV][SPACE] = ABBREV_GAP;
+        TRANSITIONS[AFTER_ABBREV][NEWLINE] = ABBREV_GAP;
+        TRANSITIONS[AFTER_ABBREV][CLOSER] = CLOSING;
+
+        // After "end. " anything but a lower-case letter starts a new sentence
+        for (int cls = 0; cls < CLASSES; cls++) {
+            TRANSITIONS[GAP][cls] = text[cls] | BOUNDARY;
+        }
+        TRANSITIONS[GAP][SPACE] = GAP;
+        TRANSITIONS[GAP][NEWLINE] = GAP;
+        TRANSITIONS[GAP][LOWER] = TEXT;
+
+        TRANSITIONS[ABBREV_GAP][SPACE] = ABBREV_GAP;
+        TRANSITIONS[ABBREV_GAP][NEWLINE] = LINE_BREAK;
+
+        // A blank line always ends the sentence (headings, list items without periods)
+        TRANSITIONS[LINE_BREAK][SPACE] = LINE_BREAK;
+        TRANSITIONS[LINE_BREAK][NEWLINE] = TEXT | BOUNDARY;
+
+        for (int st = 0; st < STATES; st++) {
+            System.arraycopy(TRANSITIONS[st], 0, TABLE, st * CLASSES, CLASSES);
+        }
+        for (int c = 0; c < 128; c++) {
+            PLAIN_TEXT[c] = TABLE[TEXT * CLASSES + ASCII_CLASS[c]] == TEXT;
+        }
+    }
+
+    private static final String[] DEFAULT_ABBREVIATIONS = {
+        "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "vs", "cf", "al", "fig", "figs",
+        "eq", "eqs", "no", "vol", "pp", "ch", "sec", "ref", "approx", "dept", "inc", "ltd",
+        "corp", "jan", "feb", "mar", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec"
+    };
+    // Longest word worth checking against the abbreviation list; it must fit in one packed long
+    private static final int MAX_WORD = 8;
+
+    // Keyed by wordKey(): every period costs one probe, without hashing a String
+    private static final LongIntHashMap ABBREVIATIONS = new LongIntHashMap(DEFAULT_ABBREVIATIONS.length);
+    static {
+        for (String a : DEFAULT_ABBREVIATIONS) {
+            ABBREVIATIONS.put(wordKey(a, a.length()), 1);
+        }
+    }
+
+    private int state = TEXT;
+
+    /** Starts over for a new text. */
+    public void reset() {
+        state = TEXT;
+    }
+
+    /**
+     * Feeds text[i], the next character; true when the sentence so far ended
+     * just before it (text[i] then belongs to the next sentence). The word
+     * before a period must still be in text.
+     */
+    public boolean boundaryBefore(CharSequence text, int i) {
+        int cls = classOf(text.charAt(i));
+        int entry = TABLE[state * CLASSES + cls];
+        state = entry & ~BOUNDARY;
+        if (state == AFTER_PERIOD && cls == PERIOD && isAbbreviation(text, i)) {
+            state = AFTER_ABBREV;
+        }
+        return (entry & BOUNDARY) != 0;
+    }
+
+    // Single letters ("U.S.", "J. Smith") and listed abbreviations; dot is the period's index
+    private static boolean isAbbreviation(CharSequence text, int dot) {
+        int length = 0;
+        while (length < dot && Character.isLetter(text.charAt(dot - length - 1))) {
+            if (++length > MAX_WORD) {
+                return false;
+            }
+        }
+        return length == 1 || (length > 1 && ABBREVIATIONS.get(wordKey(text, dot), 0) != 0);
+    }
+
+    /**
+     * Packs the ASCII-lower-cased letters of the word ending at end, last
+     * letter first, 8 bits each; the word is at most MAX_WORD letters long.
+     */
+    private static long wordKey(CharSequence text, int end) {
+        long key = 0;
+        for (int i = end - 1; i >= 0 && Character.isLetter(text.charAt(i)); i--) {
+            key = (key << 8) | (Character.toLowerCase(text.charAt(i)) & 0xFF);
+        }
+        return key;
+    }
+
+    private static int classOf(char c) {
+        if (c < 128) {
+            return ASCII_CLASS[c];
+        }
+        if (Character.isUpperCase(c)) return UPPER;
+        if (Character.isLetter(c)) return LOWER;
+        if (Character.isDigit(c)) return DIGIT;
+        if (c == '\u2028' || c == '\u2029') return NEWLINE;
+        if (Character.isWhitespace(c) || c == '\u00A0') return SPACE;
+        if (c == '”' || c == '’' || c == '»') return CLOSER;
+        if (c == '“' || c == '‘' || c == '«') return OPENER;
+        if (c == '…') return TERMINATOR;
+        return OTHER;
+    }
+
+    // ====== Whole texts ======
+
+    /** Splits text into cleaned, non-empty sentences. */
+    public static List<String> split(String text) {
+        List<String> sentences = new ArrayList<>();
+        SentenceSegmenter segmenter = new SentenceSegmenter();
+        int n = text.length();
+        int start = 0;
+        int lastLineBreak = -1;
+        for (int i = 0; i < n; i++) {
+            if (segmenter.state == TEXT) {
+                // Most characters leave TEXT as it is: skip the run without a table lookup
+                char c;
+                while ((c = text.charAt(i)) < 128 && PLAIN_TEXT[c] && ++i < n) {
+                }
+                if (i == n) {
+                    break;
+                }
+            }
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lastLineBreak = i; // never skipped above, so every line break is seen here
+            }
+            if (segmenter.boundaryBefore(text, i)) {
+                addSentence(sentences, text, start, i, lastLineBreak >= start);
+                start = i;
+            }
+        }
+        addSentence(sentences, text, start, n, lastLineBreak >= start);
+        return sentences;
+    }
+
+    private static void addSentence(List<String> sentences, String text, int start, int end,
+                                    boolean lineBreaks) {
+        String sentence = clean(text, start, end, lineBreaks);
+        if (sentence != null) {
+            sentences.add(sentence);
+        }
+    }
+
+    /**
+     * Trims whitespace and the final terminators (the generators add their
+     * own punctuation) and, if lineBreaks says there may be any, turns line
+     * breaks into spaces; null when nothing is left.
+     */
+    static String clean(CharSequence text, int start, int end, boolean lineBreaks) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start) {
+            char c = text.charAt(end - 1);
+            if (!Character.isWhitespace(c) && c != '.' && c != '?' && c != '!' && c != '…') break;
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        String sentence = text.subSequence(start, end).toString();
+        if (lineBreaks) {
+            sentence = sentence.replace('\n', ' ').replace('\r', ' ');
+        }
+        return sentence;
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Precomputed stopword set used when picking key terms.
+ *
+ * Words are normalised the way isCommonWord always did it - lower-cased, with
+ * everything except letters dropped - and stored in one shared char pool
+ * indexed by an open-addressing hash table (linear probing). contains() hashes
+ * and compares straight from the caller's characters, so a lookup allocates
+ * nothing, even for a token inside a longer sentence. Once loaded the set is
+ * only read and can be shared between generation threads.
+ *
+ * Stopword files are UTF-8, one word per line, '#' starts a comment. Every
+ * *.txt file in the stopwords directory is loaded (e.g. en.txt, de.txt), so
+ * adding a language is just dropping in its list.
+ */
+public class StopwordSet {
+
+    private static final String[] DEFAULT_WORDS = {
+        "the", "and", "for", "are", "but", "not", "you", "all", "can", "her", "was", "one",
+        "our", "out", "day", "get", "has", "him", "his", "how", "man", "new", "now", "old",
+        "see", "two", "way", "who", "boy", "did", "its", "let", "put", "say", "she", "too", "use"
+    };
+
+    private char[] pool = new char[1024];
+    private int poolSize = 0;
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+
+    // Slot holds entry index + 1; 0 marks an empty slot
+    private int[] table = new int[128];
+
+    /** The built-in English list that isCommonWord has always used. */
+    public static StopwordSet defaults() {
+        StopwordSet set = new StopwordSet();
+        for (String w : DEFAULT_WORDS) {
+            set.add(w);
+        }
+        return set;
+    }
+
+    /** Defaults plus every *.txt list found in dir (missing dir = defaults only). */
+    public static StopwordSet load(File dir) {
+        StopwordSet set = defaults();
+        File[] files = dir == null ? null : dir.listFiles((d, name) -> name.toLowerCase().endsWith(".txt"));
+        if (files == null) {
+            return set;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            try {
+                set.addAll(f);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        System.out.println("Loaded " + set.size() + " stopwords from " + files.length + " list(s)");
+        return set;
+    }
+
+    public void addAll(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                add(line);
+            }
+        }
+    }
+
+    /** Adds a word; returns false if it was already present or has no letters. */
+    public boolean add(CharSequence word) {
+        int len = normalizedLength(word, 0, word.length());
+        if (len == 0) return false;
+        int h = hash(word, 0, word.length());
+        if (find(word, 0, word.length(), h) >= 0) return false;
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        if (poolSize + len > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+        }
+        offsets[size] = poolSize;
+        lengths[size] = len;
+        hashes[size] = h;
+        for (int i = 0; i < word.length(); i++) {
+            char c = normalize(word.charAt(i));
+            if (c != 0) pool[poolSize++] = c;
+        }
+        size++;
+
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(size - 1);
+        }
+        return true;
+    }
+
+    public boolean contains(CharSequence word) {
+        return contains(word, 0, word.length());
+    }
+
+    /** Looks up text[start, end) without creating a String. */
+    public boolean contains(CharSequence text, int start, int end) {
+        if (normalizedLength(text, start, end) == 0) return false;
+        return find(text, start, end, hash(text, start, end)) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(CharSequence text, int start, int end, int h) {
+        int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (entry < 0) return -1;
+            if (hashes[entry] == h && equalsEntry(entry, text, start, end)) return entry;
+        }
+    }
+
+    private boolean equalsEntry(int entry, CharSequence text, int start, int end) {
+        int p = offsets[entry];
+        int pEnd = p + lengths[entry];
+        for (int i = start; i < end; i++) {
+            char c = normalize(text.charAt(i));
+            if (c == 0) continue;
+            if (p == pEnd || pool[p++] != c) return false;
+        }
+        return p == pEnd;
+    }
+
+    private void insert(int entry) {
+        int mask = table.length - 1;
+        int slot = hashes[entry] & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int e = 0; e < size; e++) {
+            insert(e);
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0x811C9DC5;
+        for (int i = start; i < end; i++) {
+            char c = normalize(text.charAt(i));
+            if (c == 0) continue;
+            h = (h ^ c) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int normalizedLength(CharSequence text, int start, int end) {
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (normalize(text.charAt(i)) != 0) n++;
+        }
+        return n;
+    }
+
+    // Lower-cased letter, or 0 for characters that are ignored
+    private static char normalize(char c) {
+        if (c >= 'a' && c <= 'z') return c;
+        if (c >= 'A' && c <= 'Z') return (char) (c + 32);
+        if (c < 128 || !Character.isLetter(c)) return 0;
+        return Character.toLowerCase(c);
+    }
+}
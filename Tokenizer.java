@@ -0,0 +1,136 @@
+/**
+ * Single-pass word tokenizer shared by the question generator.
+ *
+ * tokenize() scans a sentence once and records, for every whitespace-separated
+ * token, its [start, end) offsets and its cleaned length - the number of
+ * letters and digits, i.e. what replaceAll("[^a-zA-Z0-9]", "") used to keep.
+ * No Strings are created until a caller actually asks for one with cleaned()
+ * or joinReplacing(). The offset arrays are reused between calls, so keep one
+ * Tokenizer per thread rather than sharing it.
+ */
+public class Tokenizer {
+
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private int[] cleanLengths = new int[32];
+    private CharSequence text = "";
+    private int count = 0;
+
+    /**
+     * Splits the text on whitespace (the same characters as \s) and returns the
+     * number of tokens found.
+     */
+    public int tokenize(CharSequence s) {
+        text = s;
+        count = 0;
+        int len = s.length();
+        int i = 0;
+        while (i < len) {
+            while (i < len && isWhitespace(s.charAt(i))) i++;
+            if (i >= len) break;
+
+            int start = i;
+            int clean = 0;
+            while (i < len && !isWhitespace(s.charAt(i))) {
+                if (isWordChar(s.charAt(i))) clean++;
+                i++;
+            }
+            if (count == starts.length) grow();
+            starts[count] = start;
+            ends[count] = i;
+            cleanLengths[count] = clean;
+            count++;
+        }
+        return count;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int start(int token) {
+        return starts[token];
+    }
+
+    public int end(int token) {
+        return ends[token];
+    }
+
+    public int cleanLength(int token) {
+        return cleanLengths[token];
+    }
+
+    /** The token with everything except ASCII letters and digits removed. */
+    public String cleaned(int token) {
+        char[] out = new char[cleanLengths[token]];
+        int n = 0;
+        for (int i = starts[token]; i < ends[token]; i++) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) out[n++] = c;
+        }
+        return new String(out);
+    }
+
+    /** Cleaned tokens [first, first + n) joined with single spaces, e.g. a key phrase. */
+    public String cleaned(int first, int n) {
+        if (n == 1) {
+            return cleaned(first);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int t = first; t < first + n; t++) {
+            if (t > first) sb.append(' ');
+            sb.append(cleaned(t));
+        }
+        return sb.toString();
+    }
+
+    /** Re-joins the tokens with single spaces, swapping one token for replacement. */
+    public String joinReplacing(int token, String replacement) {
+        return joinReplacing(token, 1, replacement);
+    }
+
+    /** Re-joins the tokens with single spaces, swapping tokens [first, first + n) for one replacement. */
+    public String joinReplacing(int first, int n, String replacement) {
+        StringBuilder sb = new StringBuilder(text.length() + replacement.length());
+        for (int t = 0; t < count; t++) {
+            if (t > first && t < first + n) continue;
+            if (t > 0) sb.append(' ');
+            if (t == first) {
+                sb.append(replacement);
+            } else {
+                sb.append(text, starts[t], ends[t]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * True when the text has at least min tokens. Stateless and allocation
+     * free - used to filter out short sentence fragments.
+     */
+    public static boolean hasTokens(CharSequence s, int min) {
+        int found = 0;
+        boolean inToken = false;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            boolean ws = isWhitespace(s.charAt(i));
+            if (!ws && !inToken && ++found >= min) return true;
+            inToken = !ws;
+        }
+        return min <= 0;
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    private void grow() {
+        int size = starts.length * 2;
+        starts = java.util.Arrays.copyOf(starts, size);
+        ends = java.util.Arrays.copyOf(ends, size);
+        cleanLengths = java.util.Arrays.copyOf(cleanLengths, size);
+    }
+}
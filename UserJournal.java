@@ -0,0 +1,314 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of user changes (users.log), in front of UserStore.
+ *
+ * Layout (big-endian): int magic "QUSJ", int version, then one entry per
+ * change: [int payload length][int CRC32 of payload][payload], payload =
+ * byte op, string name, string password (int length + UTF-8).
+ *
+ * append() only writes the entry; a background "user-journal" thread
+ * fsyncs whatever has been appended since its last sync and then wakes
+ * every caller of awaitDurable() waiting on those entries and completes the
+ * futures handed out by whenDurable() (group commit).
+ * Signups arriving during one fsync share the next one, so a signup costs
+ * at most about two fsyncs of a small file however many users exist.
+ *
+ * Once the entries have been applied to the snapshot and the snapshot is
+ * forced to disk, reset() truncates the journal back to its header. On
+ * open, readEntries() returns the entries written since then; the first
+ * torn or corrupt entry (a crash mid-append) and everything after it are
+ * cut off.
+ */
+public class UserJournal implements Closeable {
+
+    static final byte OP_ADD = 1;
+
+    private static final int MAGIC = 0x5155534A; // "QUSJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_ENTRY = 1 << 20;
+
+    private final File file;
+    private final FileChannel channel;
+    private final Thread committer;
+    private long end;
+    // Sequence numbers of entries: appended so far / known to be on disk
+    private long appended = 0;
+    private long durable = 0;
+    private IOException failure = null;
+    private boolean closed = false;
+    // whenDurable() futures not completed yet, in sequence order
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    private static final class Waiter {
+        final long sequence;
+        final CompletableFuture<Void> future;
+
+        Waiter(long sequence, CompletableFuture<Void> future) {
+            this.sequence = sequence;
+            this.future = future;
+        }
+    }
+
+    public UserJournal(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+            channel.truncate(HEADER_SIZE);
+            channel.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IOException("Not a user journal: " + file);
+            }
+        }
+        end = channel.size();
+        committer = new Thread(this::commitLoop, "user-journal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Entries since the last reset(), as {name, password} pairs in order.
+     * Drops a torn or corrupt tail; call before the first append().
+     */
+    public synchronized List<String[]> readEntries() throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        ByteBuffer head = ByteBuffer.allocate(8);
+        long pos = HEADER_SIZE;
+        while (true) {
+            head.clear();
+            if (pos + 8 > end || channel.read(head, pos) < 8) {
+                break;
+            }
+            head.flip();
+            int length = head.getInt();
+            int crc = head.getInt();
+            if (length <= 0 || length > MAX_ENTRY || pos + 8 + length > end) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining() && channel.read(payload, pos + 8 + payload.position()) > 0) {
+            }
+            CRC32 check = new CRC32();
+            check.update(payload.array(), 0, length);
+            if (payload.hasRemaining() || (int) check.getValue() != crc) {
+                break;
+            }
+            payload.flip();
+            if (payload.get() == OP_ADD) {
+                entries.add(new String[]{readString(payload), readString(payload)});
+            }
+            pos += 8 + length;
+        }
+        if (pos < end) {
+            System.out.println("Dropping " + (end - pos) + " bytes of incomplete journal entries in " + file);
+            channel.truncate(pos);
+            channel.force(true);
+            end = pos;
+        }
+        return entries;
+    }
+
+    /** Writes one entry (not yet durable); returns the sequence number to wait for. */
+    public synchronized long append(String username, String password) throws IOException {
+        checkOpen();
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] pass = password.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + name.length + 4 + pass.length;
+        ByteBuffer entry = ByteBuffer.allocate(8 + length);
+        entry.putInt(length).putInt(0)
+                .put(OP_ADD).putInt(name.length).put(name).putInt(pass.length).put(pass);
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), 8, length);
+        entry.putInt(4, (int) crc.getValue()).flip();
+        while (entry.hasRemaining()) {
+            channel.write(entry, end + entry.position());
+        }
+        end += entry.limit();
+        notifyAll();
+        return ++appended;
+    }
+
+    /** Blocks until entry sequence has been fsynced (or made durable by reset()). */
+    public synchronized void awaitDurable(long sequence) throws IOException {
+        while (durable < sequence) {
+            checkOpen();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the user journal");
+            }
+        }
+    }
+
+    /**
+     * Non-blocking awaitDurable(): the future completes once entry sequence
+     * is on disk, on the committer thread (keep callbacks short), or
+     * exceptionally if the journal fails or is closed first.
+     */
+    public synchronized CompletableFuture<Void> whenDurable(long sequence) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (durable >= sequence) {
+            future.complete(null);
+        } else if (failure != null || closed) {
+            future.completeExceptionally(failure != null
+                    ? new IOException("User journal write failed", failure)
+                    : new IOException("User journal is closed"));
+        } else {
+            waiters.add(new Waiter(sequence, future));
+        }
+        return future;
+    }
+
+    // Removes the waiters whose entries are durable; complete them outside the lock
+    private List<Waiter> takeDurableWaiters() {
+        List<Waiter> ready = new ArrayList<>();
+        while (!waiters.isEmpty() && waiters.get(0).sequence <= durable) {
+            ready.add(waiters.remove(0));
+        }
+        return ready;
+    }
+
+    private List<Waiter> takeAllWaiters() {
+        List<Waiter> all = new ArrayList<>(waiters);
+        waiters.clear();
+        return all;
+    }
+
+    private static void complete(List<Waiter> ready, IOException error) {
+        for (Waiter w : ready) {
+            if (error == null) {
+                w.future.complete(null);
+            } else {
+                w.future.completeExceptionally(error);
+            }
+        }
+    }
+
+    /** Bytes of entries since the last reset(). */
+    public synchronized long length() {
+        return end - HEADER_SIZE;
+    }
+
+    /**
+     * Empties the journal. Only call once every appended entry is durable
+     * elsewhere (the snapshot has been forced); waiting callers are released.
+     */
+    public void reset() throws IOException {
+        List<Waiter> ready;
+        synchronized (this) {
+            channel.truncate(HEADER_SIZE);
+            channel.force(true);
+            end = HEADER_SIZE;
+            durable = appended;
+            notifyAll();
+            ready = takeDurableWaiters();
+        }
+        complete(ready, null);
+    }
+
+    private void commitLoop() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                while (!closed && durable == appended) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                target = appended;
+            }
+            try {
+                // Outside the lock: appends made during the fsync go into the next group
+                channel.force(false);
+                List<Waiter> ready;
+                synchronized (this) {
+                    durable = Math.max(durable, target);
+                    notifyAll();
+                    ready = takeDurableWaiters();
+                }
+                complete(ready, null);
+            } catch (IOException e) {
+                e.printStackTrace();
+                List<Waiter> failed;
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                    failed = takeAllWaiters();
+                }
+                complete(failed, new IOException("User journal write failed", e));
+                return;
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("User journal write failed", failure);
+        }
+        if (closed) {
+            throw new IOException("User journal is closed");
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Waiter> ready;
+        try {
+            channel.force(true);
+            synchronized (this) {
+                durable = appended;
+                ready = takeDurableWaiters();
+            }
+            complete(ready, null);
+        } finally {
+            channel.close();
+            synchronized (this) {
+                ready = takeAllWaiters();
+            }
+            complete(ready, new IOException("User journal is closed"));
+        }
+    }
+}
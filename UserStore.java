@@ -0,0 +1,480 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk user credentials, replacing the serialized HashMap in users.dat.
+ *
+ * Two files:
+ *   users.db   append-only records, each [int length][string name][string password]
+ *              (strings as in the question cache: int length + UTF-8)
+ *   users.idx  memory-mapped open-addressing hash table over users.db
+ *
+ * Layout of users.idx (big-endian):
+ *   int magic "QUSR", int version, int slotCount, int userCount,
+ *   long indexedEnd (users.db length covered by the table), int dirty, int unused
+ *   slotCount x long   (hash << 32) | record offset, 0 = empty slot
+ *
+ * A lookup hashes the name, probes the mapped table and reads only the
+ * matching record, so opening the store does not depend on the number of
+ * users. An insert appends one record and fills one slot; the table doubles
+ * in place when it is half full. users.db is the source of truth: a missing
+ * or half-rebuilt index is rebuilt from it, and records appended after the
+ * last indexed one (a crash between the two writes) are indexed on open.
+ * Records are below 4 GB of offset, which is millions of users.
+ *
+ * Neither file is fsynced on a signup. Every change first goes to a
+ * UserJournal (users.log), and add() returns once the journal entry is on
+ * disk; addAsync() does the same write on the store's background thread
+ * and completes a future instead, so the UI thread never touches the files
+ * or waits for an fsync. That thread also compacts: it forces both files and empties the journal
+ * every COMPACT_INTERVAL_SECONDS, or sooner once the journal reaches
+ * COMPACT_THRESHOLD_BYTES. After a crash, open() replays the journal into
+ * the snapshot; replay is idempotent because a name that is already
+ * present is skipped.
+ */
+public class UserStore implements Closeable {
+
+    private static final int INDEX_MAGIC = 0x51555352; // "QUSR"
+    private static final int DATA_MAGIC = 0x51555344;  // "QUSD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int DATA_HEADER_SIZE = 8;
+    private static final int MIN_SLOTS = 1024;
+    // Slot positions are int offsets into the mapping
+    private static final int MAX_SLOTS = 1 << 27;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+    static final int COMPACT_INTERVAL_SECONDS = 30;
+    static final long COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+    private static final int CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final File indexFile;
+    private final FileChannel data;
+    private final FileChannel index;
+    private MappedByteBuffer table;
+    private int slots;
+    private int count;
+    private long dataEnd;
+    private long indexedEnd;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(256);
+    private UserJournal journal;
+    private ScheduledExecutorService compactor;
+
+    private UserStore(File dataFile, File indexFile) throws IOException {
+        this.indexFile = indexFile;
+        this.data = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens (or creates) the store in dir. If it does not exist yet and a
+     * legacy users.dat is there, its accounts are imported once and the old
+     * file is renamed to users.dat.migrated. Changes journaled after the
+     * last compaction are replayed first.
+     */
+    public static UserStore open(File dir) throws IOException {
+        File dataFile = new File(dir, "users.db");
+        File legacy = new File(dir, "users.dat");
+        boolean fresh = !dataFile.exists() || dataFile.length() == 0;
+        UserStore store = new UserStore(dataFile, new File(dir, "users.idx"));
+        try {
+            store.load();
+            store.journal = new UserJournal(new File(dir, "users.log"));
+            List<String[]> entries = store.journal.readEntries();
+            if (!entries.isEmpty()) {
+                int applied = 0;
+                for (String[] e : entries) {
+                    if (store.insert(e[0], e[1])) applied++;
+                }
+                System.out.println("Replayed " + entries.size() + " journaled user changes (" + applied + " new)");
+                store.compact();
+            }
+            if (fresh && legacy.exists()) {
+                store.importLegacy(legacy);
+            }
+            store.startCompactor();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        if (data.size() < DATA_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+            header.putInt(DATA_MAGIC).putInt(VERSION).flip();
+            data.write(header, 0);
+            data.truncate(DATA_HEADER_SIZE);
+        } else if (readInt(0) != DATA_MAGIC) {
+            throw new IOException("Not a user store: users.db");
+        }
+        dataEnd = data.size();
+
+        indexedEnd = DATA_HEADER_SIZE;
+        if (index.size() >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            index.read(header, 0);
+            header.flip();
+            boolean valid = header.getInt() == INDEX_MAGIC && header.getInt() == VERSION;
+            int slotCount = header.getInt();
+            int userCount = header.getInt();
+            long end = header.getLong();
+            boolean dirty = header.getInt() != 0;
+            if (valid && !dirty && Integer.bitCount(slotCount) == 1 && end <= dataEnd
+                    && index.size() >= HEADER_SIZE + 8L * slotCount) {
+                map(slotCount);
+                count = userCount;
+                indexedEnd = end;
+            }
+        }
+        if (table == null) {
+            if (index.size() > 0) {
+                System.out.println("Rebuilding user index " + indexFile);
+            }
+            map(MIN_SLOTS);
+            clearTable();
+            count = 0;
+            indexedEnd = DATA_HEADER_SIZE;
+        }
+        indexRecords(indexedEnd);
+    }
+
+    // Indexes every complete record from offset on; a torn record at the end is cut off
+    private void indexRecords(long offset) throws IOException {
+        while (offset + 4 <= dataEnd) {
+            int length = readInt(offset);
+            if (length < 8 || offset + 4 + length > dataEnd) {
+                break;
+            }
+            String name = readRecord(offset)[0];
+            if (find(name) < 0) {
+                insertSlot(hash(name), offset);
+            }
+            offset += 4 + length;
+            indexedEnd = offset;
+        }
+        if (offset < dataEnd) {
+            System.out.println("Dropping incomplete user record at " + offset);
+            data.truncate(offset);
+            dataEnd = offset;
+        }
+        writeHeader(false);
+    }
+
+    private void importLegacy(File legacy) throws IOException {
+        Map<String, String> users;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(legacy)))) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> read = (Map<String, String>) in.readObject();
+            users = read;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unreadable " + legacy, e);
+        }
+        for (Map.Entry<String, String> e : users.entrySet()) {
+            insert(e.getKey(), e.getValue());
+        }
+        compact();
+        Files.move(legacy.toPath(), new File(legacy.getPath() + ".migrated").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Migrated " + users.size() + " users from " + legacy);
+    }
+
+    // ====== Lookups and inserts ======
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized boolean contains(String username) throws IOException {
+        return find(username) >= 0;
+    }
+
+    /** The user's password, or null if there is no such user. */
+    public synchronized String password(String username) throws IOException {
+        long offset = find(username);
+        return offset < 0 ? null : readRecord(offset)[1];
+    }
+
+    /**
+     * Adds a new user and returns once the change is durable; false (and
+     * nothing written) if the name is taken.
+     */
+    public boolean add(String username, String password) throws IOException {
+        long sequence = append(username, password);
+        if (sequence < 0) {
+            return false;
+        }
+        // Outside the lock, so signups arriving meanwhile share the same fsync
+        journal.awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * add() without blocking the caller: the record is written on the
+     * store's background thread, and the future completes with true once it
+     * is durable, false if the name is taken, or exceptionally on an I/O
+     * error. Callbacks run on a store thread; UI code must hand them over
+     * to its own thread.
+     */
+    public CompletableFuture<Boolean> addAsync(String username, String password) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            compactor.execute(() -> {
+                long sequence;
+                try {
+                    sequence = append(username, password);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (sequence < 0) {
+                    result.complete(false);
+                    return;
+                }
+                journal.whenDurable(sequence).whenComplete((v, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(true);
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IOException("User store is closed", e));
+        }
+        return result;
+    }
+
+    // Journals and inserts a new user; its journal sequence, or -1 if the name is taken
+    private synchronized long append(String username, String password) throws IOException {
+        if (find(username) >= 0) {
+            return -1;
+        }
+        long sequence = journal.append(username, password);
+        insert(username, password);
+        if (journal.length() >= COMPACT_THRESHOLD_BYTES) {
+            compactor.execute(this::compactQuietly);
+        }
+        return sequence;
+    }
+
+    // Appends a record and indexes it, without journaling; false if the name is taken
+    private boolean insert(String username, String password) throws IOException {
+        if (find(username) >= 0) {
+            return false;
+        }
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] pass = password.getBytes(StandardCharsets.UTF_8);
+        long offset = dataEnd;
+        if (offset > MAX_OFFSET) {
+            throw new IOException("User store is full");
+        }
+        ByteBuffer record = ByteBuffer.allocate(12 + name.length + pass.length);
+        record.putInt(8 + name.length + pass.length)
+                .putInt(name.length).put(name)
+                .putInt(pass.length).put(pass)
+                .flip();
+        while (record.hasRemaining()) {
+            data.write(record, offset + record.position());
+        }
+        dataEnd = offset + record.limit();
+        insertSlot(hash(username), offset);
+        indexedEnd = dataEnd;
+        writeHeader(false);
+        return true;
+    }
+
+    // Record offset of username, or -1
+    private long find(String username) throws IOException {
+        int h = hash(username);
+        int mask = slots - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            long slot = table.getLong(HEADER_SIZE + 8 * i);
+            if (slot == 0) {
+                return -1;
+            }
+            long offset = slot & MAX_OFFSET;
+            if ((int) (slot >>> 32) == h && username.equals(readRecord(offset)[0])) {
+                return offset;
+            }
+        }
+    }
+
+    private void insertSlot(int h, long offset) throws IOException {
+        if ((count + 1) * 2L > slots) {
+            grow();
+        }
+        putSlot(((long) h << 32) | offset);
+        count++;
+    }
+
+    private void putSlot(long entry) {
+        int mask = slots - 1;
+        int i = (int) (entry >>> 32) & mask;
+        while (table.getLong(HEADER_SIZE + 8 * i) != 0) {
+            i = (i + 1) & mask;
+        }
+        table.putLong(HEADER_SIZE + 8 * i, entry);
+    }
+
+    // Doubles the table in place from the stored hashes, without reading users.db.
+    // The dirty flag makes a crash halfway through rebuild the index on next open.
+    private void grow() throws IOException {
+        if (slots >= MAX_SLOTS) {
+            throw new IOException("User index is full");
+        }
+        long[] entries = new long[count];
+        int n = 0;
+        for (int i = 0; i < slots; i++) {
+            long slot = table.getLong(HEADER_SIZE + 8 * i);
+            if (slot != 0) entries[n++] = slot;
+        }
+        writeHeader(true);
+        map(slots * 2);
+        clearTable();
+        for (int i = 0; i < n; i++) {
+            putSlot(entries[i]);
+        }
+        writeHeader(false);
+    }
+
+    // ====== File access ======
+
+    private void map(int slotCount) throws IOException {
+        slots = slotCount;
+        table = index.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 8L * slotCount);
+    }
+
+    private void clearTable() {
+        for (int i = 0; i < slots; i++) {
+            table.putLong(HEADER_SIZE + 8 * i, 0L);
+        }
+    }
+
+    private void writeHeader(boolean dirty) {
+        table.putInt(0, INDEX_MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, slots);
+        table.putInt(12, count);
+        table.putLong(16, indexedEnd);
+        table.putInt(24, dirty ? 1 : 0);
+    }
+
+    private int readInt(long position) throws IOException {
+        ByteBuffer buffer = fill(position, 4);
+        return buffer.getInt();
+    }
+
+    // {name, password} of the record at offset
+    private String[] readRecord(long offset) throws IOException {
+        int length = readInt(offset);
+        ByteBuffer record = fill(offset + 4, length);
+        String name = readString(record);
+        String password = readString(record);
+        return new String[]{name, password};
+    }
+
+    private ByteBuffer fill(long position, int length) throws IOException {
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+        }
+        readBuffer.clear().limit(length);
+        while (readBuffer.hasRemaining()) {
+            if (data.read(readBuffer, position + readBuffer.position()) < 0) {
+                throw new EOFException("Truncated user record at " + position);
+            }
+        }
+        readBuffer.flip();
+        return readBuffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        byte[] bytes = new byte[len];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // String.hashCode is fixed by the spec, so the index stays valid across JVMs
+    private static int hash(String username) {
+        int h = username.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // ====== Compaction ======
+
+    private void startCompactor() {
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "user-store");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly,
+                COMPACT_INTERVAL_SECONDS, COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Folds the journal into the snapshot: forces users.db and users.idx,
+     * then empties the journal, whose entries are all applied by now.
+     */
+    public synchronized void compact() throws IOException {
+        data.force(true);
+        table.force();
+        journal.reset();
+    }
+
+    private void compactQuietly() {
+        try {
+            if (journal.length() > 0) {
+                compact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            // Periodic compaction stops; signups already submitted still run
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                if (journal != null) {
+                    compact();
+                    journal.close();
+                } else if (table != null) {
+                    table.force();
+                    data.force(true);
+                }
+            } finally {
+                data.close();
+                index.close();
+            }
+        }
+    }
+}